@@ -0,0 +1,134 @@
+package jobshop;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import jobshop.encodings.JobNumbers;
+import jobshop.encodings.ResourceOrder;
+import jobshop.encodings.Task;
+import jobshop.solvers.GreedyPriority;
+import jobshop.solvers.GreedySolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Microbenchmarks of the primitives used in the inner loops of the solvers : decoding of both encodings, copies,
+ * and the analysis of a schedule.
+ *
+ * All benchmarks operate on the solution of the EST_LRPT greedy rule, for a small, a medium and a large instance.
+ * The primitives of the neighborhood search are measured by jobshop.solvers.NeighborhoodBenchmark.
+ * Run them with `./gradlew jmh`, which also reports allocation rates (`-prof gc`).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncodingBenchmark {
+
+    @Param({"ft06", "la40", "ta80"})
+    public String instanceName;
+
+    private Instance instance;
+    private Schedule schedule;
+    private ResourceOrder resourceOrder;
+    private JobNumbers jobNumbers;
+    // incumbent 10% better than the solution : its evaluation is interrupted
+    private int cutoff;
+
+    @Setup
+    public void setup() throws IOException {
+        instance = Instance.fromFile(Paths.get("instances", instanceName));
+        schedule = new GreedySolver(GreedyPriority.EST_LRPT).solve(instance, Long.MAX_VALUE).schedule;
+        resourceOrder = new ResourceOrder(schedule);
+        jobNumbers = new JobNumbers(schedule);
+        cutoff = schedule.makespan() * 9 / 10;
+    }
+
+    @Benchmark
+    public Schedule jobNumbersToSchedule() {
+        return jobNumbers.toSchedule();
+    }
+
+    @Benchmark
+    public Schedule resourceOrderToSchedule() {
+        return resourceOrder.toSchedule();
+    }
+
+    @Benchmark
+    public int jobNumbersEvaluateMakespan() {
+        return jobNumbers.evaluateMakespan();
+    }
+
+    @Benchmark
+    public int resourceOrderEvaluateMakespan() {
+        return resourceOrder.evaluateMakespan();
+    }
+
+    @Benchmark
+    public int jobNumbersEvaluateMakespanWithCutoff() {
+        return jobNumbers.evaluateMakespan(cutoff);
+    }
+
+    @Benchmark
+    public int resourceOrderEvaluateMakespanWithCutoff() {
+        return resourceOrder.evaluateMakespan(cutoff);
+    }
+
+    @Benchmark
+    public JobNumbers jobNumbersFromSchedule() {
+        return new JobNumbers(schedule);
+    }
+
+    @Benchmark
+    public ResourceOrder resourceOrderFromSchedule() {
+        return new ResourceOrder(schedule);
+    }
+
+    @Benchmark
+    public JobNumbers jobNumbersFromResourceOrder() {
+        return new JobNumbers(resourceOrder);
+    }
+
+    @Benchmark
+    public ResourceOrder resourceOrderFromJobNumbers() {
+        return new ResourceOrder(jobNumbers);
+    }
+
+    @Benchmark
+    public ResourceOrder resourceOrderCopy() {
+        return resourceOrder.copy();
+    }
+
+    @Benchmark
+    public int scheduleMakespan() {
+        return schedule.makespan();
+    }
+
+    @Benchmark
+    public List<Task> scheduleCriticalPath() {
+        return schedule.criticalPath();
+    }
+
+    @Benchmark
+    public boolean scheduleIsValid() {
+        return schedule.isValid();
+    }
+
+    @Benchmark
+    public Result greedyConstruction() {
+        return new GreedySolver(GreedyPriority.EST_LRPT).solve(instance, Long.MAX_VALUE);
+    }
+}
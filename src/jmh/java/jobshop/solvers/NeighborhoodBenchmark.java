@@ -0,0 +1,78 @@
+package jobshop.solvers;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import jobshop.Instance;
+import jobshop.SolveContext;
+import jobshop.encodings.ResourceOrder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Microbenchmarks of the primitives used at each step of the descent and taboo solvers, on the solution of the
+ * EST_LRPT greedy rule (see jobshop.EncodingBenchmark for the instances).
+ *
+ * The evaluator is built and updated once in the setup, as the solvers do for a whole run : the benchmarks only
+ * measure the analysis of the order it holds, not the allocation of its buffers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NeighborhoodBenchmark {
+
+    @Param({"ft06", "la40", "ta80"})
+    public String instanceName;
+
+    private DescentSolver descent;
+    private ResourceOrder resourceOrder;
+    private SwapEvaluator evaluator;
+
+    @Setup
+    public void setup() throws IOException {
+        Instance instance = Instance.fromFile(Paths.get("instances", instanceName));
+        descent = new DescentSolver();
+        resourceOrder = descent.initialOrder(instance);
+        evaluator = new SwapEvaluator(instance, SwapEvaluator.Mode.Approximate);
+        evaluator.update(resourceOrder);
+    }
+
+    @Benchmark
+    public int updateEvaluator() {
+        return evaluator.update(resourceOrder);
+    }
+
+    @Benchmark
+    public List<DescentSolver.Block> blocksOfCriticalPath() {
+        return descent.blocksOfCriticalPath(evaluator);
+    }
+
+    @Benchmark
+    public List<DescentSolver.Swap> neighborsOfCriticalPath() {
+        return descent.neighborsOfCriticalPath(evaluator);
+    }
+
+    @Benchmark
+    public int evaluateNeighbors() {
+        List<DescentSolver.Swap> neighbors = descent.neighborsOfCriticalPath(evaluator);
+        int best = Integer.MAX_VALUE;
+        for(int i = 0 ; i < neighbors.size() ; i++) {
+            best = Math.min(best, evaluator.evaluate(neighbors.get(i)));
+        }
+        return best;
+    }
+}
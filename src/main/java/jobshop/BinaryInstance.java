@@ -0,0 +1,128 @@
+package jobshop;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Binary version of an instance file, loaded without any parsing.
+ *
+ * The binary version of `instances/ft06` is `instances/ft06.bin`. It is a sequence of little-endian 32 bits
+ * integers :
+ *  - a header : MAGIC, VERSION, number of jobs, number of tasks ;
+ *  - the machine and the duration of each task, indexed by task identifier ;
+ *  - the derived tables of the instance (task with machine, remaining work and machine loads).
+ *
+ * The derived tables are not trusted when reading a file : they are recomputed from the tasks, which are checked as
+ * when parsing a text file, and a file whose stored tables differ is rejected as corrupt or written by another
+ * program.
+ *
+ * Files are memory-mapped when read : all processes loading the same file share it through the page cache, and each
+ * table is copied with a single bulk transfer to the arrays of the instance.
+ */
+final class BinaryInstance {
+
+    /** First integer of a binary instance ("JSPB" in ASCII). */
+    static final int MAGIC = 0x4A535042;
+
+    /** Version of the layout, to be incremented whenever it changes. */
+    static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 4;
+
+    private BinaryInstance() {}
+
+    /** Path of the binary version of the given instance file. */
+    static Path binaryPathOf(Path path) {
+        return path.resolveSibling(path.getFileName() + ".bin");
+    }
+
+    /** Number of integers in the binary file of an instance of the given size. */
+    private static long sizeInInts(int numJobs, int numTasks) {
+        long numMachines = numTasks;
+        return HEADER_SIZE + 2L * numJobs * numTasks + numJobs * numMachines + numJobs * (numTasks+1L) + numMachines;
+    }
+
+    /** Writes the instance to the given file, replacing it atomically if it already exists. */
+    static void write(Instance instance, Path path) throws IOException {
+        long size = 4 * sizeInInts(instance.numJobs, instance.numTasks);
+        if(size > Integer.MAX_VALUE)
+            throw new IOException("Instance too large for the binary format: " + instance.numJobs + "x" + instance.numTasks);
+
+        ByteBuffer bytes = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+        IntBuffer ints = bytes.asIntBuffer();
+        ints.put(MAGIC).put(VERSION).put(instance.numJobs).put(instance.numTasks);
+        ints.put(instance.machines).put(instance.durations);
+        ints.put(instance.taskWithMachine).put(instance.remainingWork).put(instance.machineLoads);
+
+        // readers never see a partially written file
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                while(bytes.hasRemaining())
+                    channel.write(bytes);
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            // do not leave a partial file behind
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    /** Reads an instance from the given binary file.
+     * @throws IOException if the file cannot be read or is not a valid binary instance */
+    static Instance read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if(size < 4 * HEADER_SIZE)
+                throw new IOException(path + ": not a binary instance (too short)");
+            IntBuffer ints = channel.map(FileChannel.MapMode.READ_ONLY, 0, size)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .asIntBuffer();
+
+            if(ints.get() != MAGIC)
+                throw new IOException(path + ": not a binary instance");
+            int version = ints.get();
+            if(version != VERSION)
+                throw new IOException(path + ": unsupported version " + version + " (expected " + VERSION + ")");
+            int numJobs = ints.get();
+            int numTasks = ints.get();
+            if(numJobs <= 0 || numTasks <= 0 || size != 4 * sizeInInts(numJobs, numTasks))
+                throw new IOException(path + ": size does not match a " + numJobs + "x" + numTasks + " instance");
+
+            int numMachines = numTasks;
+            int[] machines = new int[numJobs * numTasks];
+            int[] durations = new int[numJobs * numTasks];
+            int[] taskWithMachine = new int[numJobs * numMachines];
+            int[] remainingWork = new int[numJobs * (numTasks+1)];
+            int[] machineLoads = new int[numMachines];
+            ints.get(machines).get(durations);
+            ints.get(taskWithMachine).get(remainingWork).get(machineLoads);
+
+            Instance instance;
+            try {
+                instance = new Instance(numJobs, numTasks, machines, durations);
+            } catch (IllegalArgumentException e) {
+                throw new IOException(path + ": " + e.getMessage(), e);
+            }
+            if(!Arrays.equals(instance.taskWithMachine, taskWithMachine)
+                    || !Arrays.equals(instance.remainingWork, remainingWork)
+                    || !Arrays.equals(instance.machineLoads, machineLoads))
+                throw new IOException(path + ": derived tables do not match the tasks of the instance");
+            return instance;
+        }
+    }
+}
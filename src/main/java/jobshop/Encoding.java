@@ -9,4 +9,35 @@ public abstract class Encoding {
     }
 
     public abstract Schedule toSchedule();
+
+    /** Makespan of the schedule corresponding to this encoding, or -1 if there is none.
+     * It is computed without building the schedule, and without allocating anything after the first call
+     * of a thread (see `scratch`) : this is the method to use when only the quality of a solution matters. */
+    public int evaluateMakespan() {
+        return evaluateMakespan(Integer.MAX_VALUE);
+    }
+
+    /** Same as evaluateMakespan(), but gives up as soon as the makespan is known to be greater than the cutoff.
+     *
+     * While decoding, a task that ends at time e is followed by the remaining tasks of its job, so the makespan is at
+     * least e plus their total duration : the decoding stops as soon as this bound exceeds the cutoff. This is
+     * typically used to compare a solution with the best one found so far, most solutions being rejected early.
+     *
+     * @return the makespan if it is lower than or equal to the cutoff, otherwise a lower bound of the makespan that
+     *         is greater than the cutoff (or -1 if there is no schedule for this encoding) */
+    public abstract int evaluateMakespan(int cutoff);
+
+    // per-thread buffers used to decode encodings, see scratch
+    private static final int NUM_SCRATCH_BUFFERS = 3;
+    private static final ThreadLocal<int[][]> SCRATCH = ThreadLocal.withInitial(() -> new int[NUM_SCRATCH_BUFFERS][0]);
+
+    /** Returns a buffer of at least `size` integers, private to the current thread and reused by all encodings of
+     * this thread. Each index in [0, 3) gives a distinct buffer. The initial content of a buffer is unspecified, and
+     * it must not be used anymore once the method that obtained it returns. */
+    protected static int[] scratch(int index, int size) {
+        int[][] buffers = SCRATCH.get();
+        if(buffers[index].length < size)
+            buffers[index] = new int[size];
+        return buffers[index];
+    }
 }
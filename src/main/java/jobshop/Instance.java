@@ -2,12 +2,12 @@ package jobshop;
 
 import jobshop.encodings.Task;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Iterator;
-import java.util.Scanner;
-import java.util.stream.Collectors;
+import java.util.Arrays;
 
 public class Instance {
 
@@ -20,60 +20,181 @@ public class Instance {
     /** Number of machines, assumed to be same as number of tasks. */
     public final int numMachines;
 
-    final int[][] durations;
-    final int[][] machines;
+    // duration and machine of each task, indexed by task identifier (see taskId)
+    final int[] durations;
+    final int[] machines;
+
+    // derived tables, computed once when the instance is created and never modified afterwards
+
+    // for each job j and machine m, index inside j of the task executing on m, at index j * numMachines + m
+    final int[] taskWithMachine;
+
+    // for each job j and task t (including t = numTasks), sum of the durations of tasks t, t+1, ... of j,
+    // at index j * (numTasks+1) + t
+    final int[] remainingWork;
+
+    // for each machine, sum of the durations of all tasks executing on it
+    final int[] machineLoads;
+
+    // lower bound of the makespan (see LowerBound), computed on first use, -1 until then
+    private volatile int lowerBound = -1;
+
+    // Task object of each task identifier, created on first use (see task), null until then
+    private volatile Task[] tasks = null;
 
     public int duration(int job, int task) {
-        return durations[job][task];
+        return durations[taskId(job, task)];
     }
     public int duration(Task t) {
         return duration(t.job, t.task);
     }
+    /** Duration of the task with the given identifier. */
+    public int duration(int taskId) {
+        return durations[taskId];
+    }
     public int machine(int job, int task) {
-        return machines[job][task];
+        return machines[taskId(job, task)];
     }
     public int machine(Task t) {
         return this.machine(t.job, t.task);
     }
+    /** Machine of the task with the given identifier. */
+    public int machine(int taskId) {
+        return machines[taskId];
+    }
+
+    /** Unique identifier of the task (job, task), in [0, numJobs * numTasks).
+     * Tasks of the same job have consecutive identifiers. */
+    public int taskId(int job, int task) {
+        return job * numTasks + task;
+    }
+    public int taskId(Task t) {
+        return taskId(t.job, t.task);
+    }
+    /** The task with the given identifier. Task objects are created once per instance and then shared, so that
+     * this does not allocate. */
+    public Task task(int taskId) {
+        Task[] all = tasks;
+        if(all == null) {
+            // concurrent first calls may both create the array, each with equal tasks
+            all = new Task[numJobs * numTasks];
+            for(int id = 0 ; id < all.length ; id++) {
+                all[id] = new Task(jobOf(id), taskOf(id));
+            }
+            tasks = all;
+        }
+        return all[taskId];
+    }
+    /** Job of the task with the given identifier. */
+    public int jobOf(int taskId) {
+        return taskId / numTasks;
+    }
+    /** Index, inside its job, of the task with the given identifier. */
+    public int taskOf(int taskId) {
+        return taskId % numTasks;
+    }
 
     /** among the tasks of the given job, returns the task index that uses the given machine. */
     public int task_with_machine(int job, int wanted_machine) {
-        for(int task = 0 ; task < numTasks ; task++) {
-            if(machine(job, task) == wanted_machine)
-                return task;
+        int task = taskWithMachine[job * numMachines + wanted_machine];
+        if(task < 0)
+            throw new RuntimeException("No task targeting machine "+wanted_machine+" on job "+job);
+        return task;
+    }
+
+    /** Total duration of the given task and of all tasks after it in its job.
+     * `task` can be equal to numTasks, in which case there is no remaining work. */
+    public int remainingWork(int job, int task) {
+        return remainingWork[job * (numTasks+1) + task];
+    }
+
+    /** Total duration of the task with the given identifier and of all tasks after it in its job. */
+    public int remainingWork(int taskId) {
+        // index of (job, task) in remainingWork is job * numTasks + task + job
+        return remainingWork[taskId + jobOf(taskId)];
+    }
+
+    /** Sum of the durations of all tasks of the job. */
+    public int jobLength(int job) {
+        return remainingWork(job, 0);
+    }
+
+    /** Sum of the durations of all tasks executing on the machine. */
+    public int machineLoad(int machine) {
+        return machineLoads[machine];
+    }
+
+    /** Lower bound of the makespan of any schedule of this instance (see LowerBound).
+     * It is computed the first time it is needed, and then kept for the lifetime of the instance. */
+    public int lowerBound() {
+        int bound = lowerBound;
+        if(bound < 0) {
+            // concurrent first calls may both compute it, to the same value
+            bound = LowerBound.of(this);
+            lowerBound = bound;
         }
-        throw new RuntimeException("No task targeting machine "+wanted_machine+" on job "+job);
+        return bound;
     }
 
-    Instance(int numJobs, int numTasks) {
+    /** Creates an instance from the machine and duration of each task, both indexed by task identifier.
+     * The arrays are owned by the instance afterwards and must not be modified.
+     * @throws IllegalArgumentException if a machine does not appear exactly once per job or a duration is negative */
+    Instance(int numJobs, int numTasks, int[] machines, int[] durations) {
         this.numJobs = numJobs;
         this.numTasks = numTasks;
         this.numMachines = numTasks;
 
-        durations = new int[numJobs][numTasks];
-        machines = new int[numJobs][numTasks];
+        this.durations = durations;
+        this.machines = machines;
+
+        taskWithMachine = new int[numJobs * numMachines];
+        Arrays.fill(taskWithMachine, -1);
+        remainingWork = new int[numJobs * (numTasks+1)];
+        machineLoads = new int[numMachines];
+        for(int job = 0 ; job < numJobs ; job++) {
+            for(int task = numTasks-1 ; task >= 0 ; task--) {
+                int machine = machine(job, task);
+                if(machine < 0 || machine >= numMachines)
+                    throw new IllegalArgumentException("Invalid machine "+machine+" for task ("+job+", "+task+")");
+                if(taskWithMachine[job * numMachines + machine] >= 0)
+                    throw new IllegalArgumentException("Machine "+machine+" is used by both tasks ("+job+", "+task+") and ("
+                            +job+", "+taskWithMachine[job * numMachines + machine]+")");
+                if(duration(job, task) < 0)
+                    throw new IllegalArgumentException("Negative duration for task ("+job+", "+task+")");
+                taskWithMachine[job * numMachines + machine] = task;
+                remainingWork[job * (numTasks+1) + task] = remainingWork(job, task+1) + duration(job, task);
+                machineLoads[machine] += duration(job, task);
+            }
+        }
     }
 
-    /** Parses a instance from a file. */
-    public static Instance fromFile(Path path) throws IOException {
-        Iterator<String> lines = Files.readAllLines(path).stream()
-                .filter(l -> !l.startsWith("#"))
-                .collect(Collectors.toList())
-                .iterator();
-
-        Scanner header = new Scanner(lines.next());
-        int num_jobs = header.nextInt();
-        int num_tasks = header.nextInt();
-        Instance pb = new Instance(num_jobs, num_tasks);
-
-        for(int job = 0 ; job<num_jobs ; job++) {
-            Scanner line = new Scanner(lines.next());
-            for(int task = 0 ; task < num_tasks ; task++) {
-                pb.machines[job][task] = line.nextInt();
-                pb.durations[job][task] = line.nextInt();
+    /** Loads an instance, from its binary version (see BinaryInstance) if there is an up to date one next to it,
+     * or by parsing the text file otherwise. */
+    public static Instance load(Path path) throws IOException {
+        Path binary = BinaryInstance.binaryPathOf(path);
+        if(Files.exists(binary) && (!Files.exists(path)
+                || Files.getLastModifiedTime(binary).compareTo(Files.getLastModifiedTime(path)) >= 0))
+            return BinaryInstance.read(binary);
+        return fromFile(path);
+    }
+
+    /** Writes the instance to a file, in the text format read by `fromFile`. */
+    public void toFile(Path path) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.US_ASCII)) {
+            out.write(numJobs + " " + numTasks + "\n");
+            for(int job = 0 ; job < numJobs ; job++) {
+                for(int task = 0 ; task < numTasks ; task++) {
+                    out.write(task == 0 ? "" : " ");
+                    out.write(machine(job, task) + " " + duration(job, task));
+                }
+                out.write("\n");
             }
         }
+    }
 
-        return pb;
+    /** Parses a instance from a file (see InstanceParser for the format).
+     * @throws IOException if the file cannot be read or is malformed */
+    public static Instance fromFile(Path path) throws IOException {
+        return InstanceParser.parse(path);
     }
 }
@@ -0,0 +1,136 @@
+package jobshop;
+
+/**
+ * Generator of random instances, based on the generator used by Taillard for his benchmark instances [1].
+ *
+ * All random numbers come from Taillard's linear congruential generator, driven by two seeds : one for the durations
+ * and one for the machine routings. With uniform durations in [1, 99] and random routings, the generator produces
+ * exactly Taillard's instances : for instance, `taillard(15, 15, 840612802, 398197754)` is ta01.
+ *
+ * Durations of all tasks are drawn first (job by job), then the routing of each job.
+ *
+ * [1] E. Taillard, Benchmarks for basic scheduling problems, European Journal of Operational Research, 1993.
+ */
+public class InstanceGenerator {
+
+    /** Distribution of the durations of tasks, between the minimum and maximum durations of the generator. */
+    public enum Distribution {
+        /** Every duration is equally likely (Taillard). */
+        Uniform,
+        /** Mostly short tasks : exponential distribution with mean (max-min)/4 above the minimum, truncated at the maximum. */
+        Exponential,
+        /** Short and long tasks in the same proportion : uniform in the lowest or in the highest fifth of the range. */
+        Bimodal
+    }
+
+    /** Order in which jobs visit the machines. */
+    public enum Routing {
+        /** Each job visits all machines in a random order (Taillard). */
+        Random,
+        /** All jobs visit machines in the same order 0, 1, ..., numMachines-1. */
+        FlowShop
+    }
+
+    public final int numJobs;
+    public final int numMachines;
+    public final int minDuration;
+    public final int maxDuration;
+    public final Distribution distribution;
+    public final Routing routing;
+
+    public InstanceGenerator(int numJobs, int numMachines, int minDuration, int maxDuration,
+                             Distribution distribution, Routing routing) {
+        if(numJobs <= 0 || numMachines <= 0)
+            throw new IllegalArgumentException("Invalid size " + numJobs + "x" + numMachines);
+        if(minDuration < 0 || maxDuration < minDuration)
+            throw new IllegalArgumentException("Invalid range of durations [" + minDuration + ", " + maxDuration + "]");
+        this.numJobs = numJobs;
+        this.numMachines = numMachines;
+        this.minDuration = minDuration;
+        this.maxDuration = maxDuration;
+        this.distribution = distribution;
+        this.routing = routing;
+    }
+
+    /** Generates the instance with the given parameters, exactly as Taillard's generator. */
+    public static Instance taillard(int numJobs, int numMachines, int timeSeed, int machineSeed) {
+        return new InstanceGenerator(numJobs, numMachines, 1, 99, Distribution.Uniform, Routing.Random)
+                .generate(timeSeed, machineSeed);
+    }
+
+    /** Generates an instance. Seeds must be in [1, 2^31 - 2], the same seeds always give the same instance. */
+    public Instance generate(int timeSeed, int machineSeed) {
+        int[] machines = new int[numJobs * numMachines];
+        int[] durations = new int[numJobs * numMachines];
+
+        Lcg time = new Lcg(timeSeed);
+        for(int i = 0 ; i < durations.length ; i++) {
+            durations[i] = duration(time);
+        }
+
+        Lcg machine = new Lcg(machineSeed);
+        for(int job = 0 ; job < numJobs ; job++) {
+            int first = job * numMachines;
+            for(int m = 0 ; m < numMachines ; m++) {
+                machines[first + m] = m;
+            }
+            if(routing == Routing.Random) {
+                // same shuffle as Taillard : the m-th machine is exchanged with one at a position in [m, numMachines-1]
+                for(int m = 0 ; m < numMachines ; m++) {
+                    int other = machine.nextInt(m, numMachines-1);
+                    int tmp = machines[first + m];
+                    machines[first + m] = machines[first + other];
+                    machines[first + other] = tmp;
+                }
+            }
+        }
+
+        return new Instance(numJobs, numMachines, machines, durations);
+    }
+
+    private int duration(Lcg random) {
+        switch(distribution) {
+            case Exponential:
+                double mean = (maxDuration - minDuration) / 4.0;
+                long d = minDuration + (long) Math.floor(-mean * Math.log(1 - random.nextDouble()));
+                return (int) Math.min(d, maxDuration);
+            case Bimodal:
+                int width = (maxDuration - minDuration) / 5;
+                boolean isLong = random.nextDouble() < 0.5;
+                int low = isLong ? maxDuration - width : minDuration;
+                return random.nextInt(low, low + width);
+            default:
+                return random.nextInt(minDuration, maxDuration);
+        }
+    }
+
+    /** Taillard's linear congruential generator : seed = 16807 * seed mod (2^31 - 1), computed without overflow. */
+    private static final class Lcg {
+        private static final int A = 16807;
+        private static final int B = 127773;
+        private static final int C = 2836;
+        private static final int M = Integer.MAX_VALUE;
+
+        private int seed;
+
+        Lcg(int seed) {
+            if(seed <= 0 || seed == M)
+                throw new IllegalArgumentException("Invalid seed " + seed + ", must be in [1, 2^31 - 2]");
+            this.seed = seed;
+        }
+
+        /** Uniform value in (0, 1). */
+        double nextDouble() {
+            int k = seed / B;
+            seed = A * (seed % B) - k * C;
+            if(seed < 0)
+                seed += M;
+            return seed / (double) M;
+        }
+
+        /** Uniform integer in [low, high]. */
+        int nextInt(int low, int high) {
+            return low + (int) (nextDouble() * (high - low + 1));
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package jobshop;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Parser of the text format of instances, working directly on the bytes of a memory-mapped file.
+ *
+ * The format is the following :
+ *  - lines starting with '#' are comments, and blank lines are ignored ;
+ *  - the first line gives the number of jobs and the number of tasks per job ;
+ *  - each of the following lines describes a job, as a sequence of (machine, duration) pairs, one per task.
+ * Anything after the expected integers on a line is ignored.
+ * Each machine must appear exactly once per job, and durations must not be negative (zero is allowed, as in orb07).
+ * Errors are reported as `file:line:column: message`.
+ *
+ * The file is memory-mapped and copied in bulk to a byte array, from which integers are accumulated digit by digit
+ * straight into the arrays of the instance, without any intermediate String or Scanner. Parsing the array rather
+ * than the mapped buffer itself keeps the per-byte work minimal, which matters since an instance is typically
+ * parsed once, before the JIT compiler kicks in.
+ */
+final class InstanceParser {
+
+    private final Path path;
+    private final byte[] bytes;
+    // index of the next byte to parse
+    private int pos = 0;
+    // number of the line being parsed, starting at 1
+    private int line = 0;
+    // index of the first byte of the line being parsed
+    private int lineStart = 0;
+
+    private InstanceParser(Path path, byte[] bytes) {
+        this.path = path;
+        this.bytes = bytes;
+    }
+
+    /** Parses the instance in the given file.
+     * @throws IOException if the file cannot be read or is malformed */
+    static Instance parse(Path path) throws IOException {
+        byte[] bytes;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if(size > Integer.MAX_VALUE)
+                throw new IOException(path + ": file too large");
+            bytes = new byte[(int) size];
+            channel.map(FileChannel.MapMode.READ_ONLY, 0, size).get(bytes);
+        }
+        return new InstanceParser(path, bytes).instance();
+    }
+
+    private Instance instance() throws IOException {
+        nextLine();
+        int sizeStart = pos;
+        int numJobs = nextInt("number of jobs", -1, -1);
+        int numTasks = nextInt("number of tasks", -1, -1);
+        if(numJobs <= 0 || numTasks <= 0)
+            throw error("invalid size " + numJobs + "x" + numTasks, sizeStart);
+
+        int[] machines = new int[numJobs * numTasks];
+        int[] durations = new int[numJobs * numTasks];
+        // for each machine, the last job that uses it and the task of this job executing on it
+        int[] jobOfMachine = new int[numTasks];
+        int[] taskOfMachine = new int[numTasks];
+        Arrays.fill(jobOfMachine, -1);
+        for(int job = 0 ; job < numJobs ; job++) {
+            skipRestOfLine();
+            nextLine();
+            for(int task = 0 ; task < numTasks ; task++) {
+                skipSpaces();
+                int start = pos;
+                int machine = nextInt("machine", job, task);
+                if(machine < 0 || machine >= numTasks)
+                    throw error("invalid machine " + machine + " for task " + task + " of job " + job
+                            + ", expected a machine in [0, " + (numTasks-1) + "]", start);
+                if(jobOfMachine[machine] == job)
+                    throw error("machine " + machine + " is used by both tasks " + taskOfMachine[machine] + " and "
+                            + task + " of job " + job, start);
+                jobOfMachine[machine] = job;
+                taskOfMachine[machine] = task;
+                machines[job * numTasks + task] = machine;
+
+                skipSpaces();
+                start = pos;
+                int duration = nextInt("duration", job, task);
+                if(duration < 0)
+                    throw error("the duration of task " + task + " of job " + job + " is negative", start);
+                durations[job * numTasks + task] = duration;
+            }
+        }
+
+        try {
+            return new Instance(numJobs, numTasks, machines, durations);
+        } catch (RuntimeException e) {
+            throw new IOException(path + ": " + e.getMessage(), e);
+        }
+    }
+
+    /** Moves to the beginning of the next line that is neither a comment nor blank. */
+    private void nextLine() throws IOException {
+        while(true) {
+            line++;
+            lineStart = pos;
+            if(pos == bytes.length)
+                throw error("unexpected end of file", pos);
+            int start = pos;
+            skipSpaces();
+            if(pos < bytes.length && bytes[pos] != '\n' && bytes[pos] != '\r' && bytes[start] != '#')
+                return;
+            skipRestOfLine();
+        }
+    }
+
+    /** Skips everything up to and including the next end of line. */
+    private void skipRestOfLine() {
+        while(pos < bytes.length && bytes[pos++] != '\n') { }
+    }
+
+    /** Skips spaces and tabs, without leaving the current line. */
+    private void skipSpaces() {
+        while(pos < bytes.length && (bytes[pos] == ' ' || bytes[pos] == '\t')) {
+            pos++;
+        }
+    }
+
+    /** Reads the next integer of the current line.
+     * @param what the meaning of the integer, of the given task if `job` is not negative (for error messages only) */
+    private int nextInt(String what, int job, int task) throws IOException {
+        skipSpaces();
+        int start = pos;
+        boolean negative = pos < bytes.length && bytes[pos] == '-';
+        if(negative)
+            pos++;
+
+        int digits = pos;
+        long value = 0;
+        while(pos < bytes.length && bytes[pos] >= '0' && bytes[pos] <= '9') {
+            value = value * 10 + (bytes[pos++] - '0');
+            if(value > Integer.MAX_VALUE)
+                throw error("the " + describe(what, job, task) + " is too large", start);
+        }
+        if(pos == digits || (pos < bytes.length && !isSeparator(bytes[pos])))
+            throw error("expected the " + describe(what, job, task) + ", found " + describe(start), start);
+        return negative ? (int) -value : (int) value;
+    }
+
+    private static String describe(String what, int job, int task) {
+        return job < 0 ? what : what + " of task " + task + " of job " + job;
+    }
+
+    private static boolean isSeparator(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    /** Description of the token starting at the given position, for error messages. */
+    private String describe(int start) {
+        if(start == bytes.length)
+            return "the end of file";
+        if(bytes[start] == '\n' || bytes[start] == '\r')
+            return "the end of line";
+        StringBuilder token = new StringBuilder();
+        for(int i = start ; i < bytes.length && !isSeparator(bytes[i]) && token.length() < 20 ; i++) {
+            token.append((char) bytes[i]);
+        }
+        return "\"" + token + "\"";
+    }
+
+    /** Error at the given position of the current line. */
+    private IOException error(String message, int position) {
+        return new IOException(path + ":" + line + ":" + (position - lineStart + 1) + ": " + message);
+    }
+}
@@ -0,0 +1,122 @@
+package jobshop;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sourceforge.argparse4j.ArgumentParsers;
+import net.sourceforge.argparse4j.inf.ArgumentParser;
+import net.sourceforge.argparse4j.inf.ArgumentParserException;
+import net.sourceforge.argparse4j.inf.Namespace;
+import net.sourceforge.argparse4j.inf.Subparser;
+import net.sourceforge.argparse4j.inf.Subparsers;
+
+/** Command line tools to manipulate instance files. */
+public class InstanceTools {
+
+    public static void main(String[] args) {
+        ArgumentParser parser = ArgumentParsers.newFor("jsp-instances").build()
+                .defaultHelp(true)
+                .description("Tools for jobshop instance files.");
+        Subparsers commands = parser.addSubparsers().dest("command");
+
+        Subparser convert = commands.addParser("convert")
+                .defaultHelp(true)
+                .help("Writes the binary version (<file>.bin) of text instance files, which Main loads instead of the text file as long as it is up to date.");
+        convert.addArgument("file")
+                .nargs("*")
+                .help("Instance files to convert (default: all instances in the instances/ directory)");
+
+        Subparser generate = commands.addParser("generate")
+                .defaultHelp(true)
+                .help("Generates a random instance with Taillard's generator.");
+        generate.addArgument("--jobs")
+                .type(Integer.class)
+                .required(true)
+                .help("Number of jobs");
+        generate.addArgument("--machines")
+                .type(Integer.class)
+                .required(true)
+                .help("Number of machines (and of tasks per job)");
+        generate.addArgument("--time-seed")
+                .type(Integer.class)
+                .setDefault(1)
+                .help("Seed of the durations, in [1, 2^31-2]");
+        generate.addArgument("--machine-seed")
+                .type(Integer.class)
+                .setDefault(2)
+                .help("Seed of the routings, in [1, 2^31-2]");
+        generate.addArgument("--min-duration")
+                .type(Integer.class)
+                .setDefault(1)
+                .help("Minimum duration of a task");
+        generate.addArgument("--max-duration")
+                .type(Integer.class)
+                .setDefault(99)
+                .help("Maximum duration of a task");
+        generate.addArgument("--distribution")
+                .type(InstanceGenerator.Distribution.class)
+                .setDefault(InstanceGenerator.Distribution.Uniform)
+                .help("Distribution of durations");
+        generate.addArgument("--routing")
+                .type(InstanceGenerator.Routing.class)
+                .setDefault(InstanceGenerator.Routing.Random)
+                .help("Order in which jobs visit machines");
+        generate.addArgument("-o", "--output")
+                .required(true)
+                .help("File to write the instance to");
+
+        Namespace ns = null;
+        try {
+            ns = parser.parseArgs(args);
+        } catch (ArgumentParserException e) {
+            parser.handleError(e);
+            System.exit(1);
+        }
+
+        try {
+            switch(ns.getString("command")) {
+                case "convert":
+                    convert(ns.getList("file"));
+                    break;
+                case "generate":
+                    InstanceGenerator generator = new InstanceGenerator(ns.getInt("jobs"), ns.getInt("machines"),
+                            ns.getInt("min_duration"), ns.getInt("max_duration"),
+                            ns.get("distribution"), ns.get("routing"));
+                    generator.generate(ns.getInt("time_seed"), ns.getInt("machine_seed"))
+                            .toFile(Paths.get(ns.getString("output")));
+                    break;
+            }
+        } catch (NoSuchFileException e) {
+            System.err.println("ERROR: no such file: " + e.getMessage());
+            System.exit(1);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("ERROR: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void convert(List<String> files) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        if(files.isEmpty()) {
+            // instance files are the ones without extension
+            try (DirectoryStream<Path> dir = Files.newDirectoryStream(Paths.get("instances"), p -> !p.getFileName().toString().contains("."))) {
+                dir.forEach(paths::add);
+            }
+        } else {
+            for(String file : files)
+                paths.add(Paths.get(file));
+        }
+
+        for(Path path : paths) {
+            Path binary = BinaryInstance.binaryPathOf(path);
+            BinaryInstance.write(Instance.fromFile(path), binary);
+            System.out.println(path + " -> " + binary);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package jobshop;
+
+import java.util.Arrays;
+
+/**
+ * Lower bounds of the makespan of an instance : no schedule can end before them, so a solution whose makespan is
+ * equal to one of them is optimal.
+ *
+ *  - machine load : a machine executes its tasks one at a time, so the makespan is at least the sum of their
+ *    durations ;
+ *  - job length : the tasks of a job execute one after the other, so the makespan is at least their total duration ;
+ *  - one-machine relaxation : all machines but one are assumed to have an unlimited capacity. A task of the remaining
+ *    machine cannot start before the total duration of the tasks before it in its job (its head), and is followed by
+ *    the tasks after it (its tail). The optimal makespan of this relaxation when tasks can be interrupted is given by
+ *    Jackson's preemptive schedule [1] : whenever a task is released or completed, execute the available task with
+ *    the longest tail. This bound is at least the machine load, and often much better.
+ *
+ * Bounds are computed in O(n log n) for n tasks, once per instance (see Instance.lowerBound()).
+ *
+ * [1] J. Carlier, The one-machine sequencing problem, European Journal of Operational Research, 1982.
+ */
+public final class LowerBound {
+
+    private LowerBound() {}
+
+    /** Best of all lower bounds of the instance. */
+    public static int of(Instance instance) {
+        return Math.max(Math.max(maxMachineLoad(instance), maxJobLength(instance)), oneMachine(instance));
+    }
+
+    /** Largest total duration of the tasks of a machine. */
+    public static int maxMachineLoad(Instance instance) {
+        int bound = 0;
+        for(int m = 0 ; m < instance.numMachines ; m++) {
+            bound = Math.max(bound, instance.machineLoad(m));
+        }
+        return bound;
+    }
+
+    /** Largest total duration of the tasks of a job. */
+    public static int maxJobLength(Instance instance) {
+        int bound = 0;
+        for(int j = 0 ; j < instance.numJobs ; j++) {
+            bound = Math.max(bound, instance.jobLength(j));
+        }
+        return bound;
+    }
+
+    /** Largest value of Jackson's preemptive schedule over all one-machine relaxations of the instance. */
+    public static int oneMachine(Instance instance) {
+        int bound = 0;
+        // buffers reused for all machines, indexed by job (each job has exactly one task on each machine)
+        int[] heads = new int[instance.numJobs];
+        int[] tails = new int[instance.numJobs];
+        int[] remaining = new int[instance.numJobs];
+        long[] releases = new long[instance.numJobs];
+        int[] heap = new int[instance.numJobs];
+        for(int m = 0 ; m < instance.numMachines ; m++) {
+            for(int j = 0 ; j < instance.numJobs ; j++) {
+                int task = instance.task_with_machine(j, m);
+                heads[j] = instance.jobLength(j) - instance.remainingWork(j, task);
+                tails[j] = instance.remainingWork(j, task+1);
+                remaining[j] = instance.duration(j, task);
+                releases[j] = ((long) heads[j] << 32) | j;
+            }
+            bound = Math.max(bound, jacksonPreemptiveSchedule(heads, tails, remaining, releases, heap));
+        }
+        return bound;
+    }
+
+    /** Makespan of Jackson's preemptive schedule of a single machine, in O(n log n) for n tasks (one per job).
+     * `remaining`, `releases` and `heap` are working buffers : `remaining` initially holds the duration of each
+     * task, and `releases` the head of each task packed with its job (head << 32 | job). */
+    private static int jacksonPreemptiveSchedule(int[] heads, int[] tails, int[] remaining, long[] releases, int[] heap) {
+        int n = heads.length;
+        Arrays.sort(releases);
+
+        // available tasks, in a binary max-heap of jobs ordered by tail
+        int size = 0;
+        int next = 0; // index in `releases` of the next task to be released
+        int time = 0;
+        int makespan = 0;
+        while(next < n || size > 0) {
+            if(size == 0)
+                time = Math.max(time, heads[(int) releases[next]]);
+            while(next < n && heads[(int) releases[next]] <= time) {
+                // push the released job
+                int job = (int) releases[next++];
+                int i = size++;
+                while(i > 0 && tails[heap[(i-1)/2]] < tails[job]) {
+                    heap[i] = heap[(i-1)/2];
+                    i = (i-1)/2;
+                }
+                heap[i] = job;
+            }
+
+            // execute the task with the longest tail until it completes or the next task is released
+            int job = heap[0];
+            int run = remaining[job];
+            if(next < n)
+                run = Math.min(run, heads[(int) releases[next]] - time);
+            time += run;
+            remaining[job] -= run;
+            if(remaining[job] == 0) {
+                makespan = Math.max(makespan, time + tails[job]);
+                // pop the job : move the last one down from the root
+                int last = heap[--size];
+                int i = 0;
+                while(2*i+1 < size) {
+                    int child = 2*i+1;
+                    if(child+1 < size && tails[heap[child+1]] > tails[heap[child]])
+                        child++;
+                    if(tails[heap[child]] <= tails[last])
+                        break;
+                    heap[i] = heap[child];
+                    i = child;
+                }
+                heap[i] = last;
+            }
+        }
+        return makespan;
+    }
+}
@@ -1,20 +1,38 @@
 package jobshop;
 
+import java.io.IOException;
 import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 import jobshop.solvers.BasicSolver;
 import jobshop.solvers.DescentSolver;
 import jobshop.solvers.GreedyPriority;
 import jobshop.solvers.GreedySolver;
+import jobshop.solvers.IslandTabooSolver;
+import jobshop.solvers.MultiStartDescentSolver;
 import jobshop.solvers.RandomSolver;
+import jobshop.solvers.SwapEvaluator;
 import jobshop.solvers.TabooSolver;
 import net.sourceforge.argparse4j.ArgumentParsers;
+import net.sourceforge.argparse4j.impl.Arguments;
 import net.sourceforge.argparse4j.inf.ArgumentParser;
 import net.sourceforge.argparse4j.inf.ArgumentParserException;
 import net.sourceforge.argparse4j.inf.Namespace;
@@ -22,21 +40,100 @@ import net.sourceforge.argparse4j.inf.Namespace;
 
 public class Main {
 
-    /** All solvers available in this program */
-    private static HashMap<String, Solver> solvers;
+    /** All solvers available in this program.
+     * Solvers may keep state while solving, so a new one is created for each run. */
+    private static HashMap<String, Supplier<Solver>> solvers;
     static {
         solvers = new HashMap<>();
-        solvers.put("basic", new BasicSolver());
-        solvers.put("random", new RandomSolver());
-        solvers.put("descent", new DescentSolver());
-        solvers.put("taboo", new TabooSolver(500, 5)) ; 
-        solvers.put("spt", new GreedySolver(GreedyPriority.SPT)); 
-        solvers.put("lrpt", new GreedySolver(GreedyPriority.LRPT));
-        solvers.put("estspt", new GreedySolver(GreedyPriority.EST_SPT)); 
-        solvers.put("estlrpt", new GreedySolver(GreedyPriority.EST_LRPT)) ; 
+        solvers.put("basic", BasicSolver::new);
+        solvers.put("random", RandomSolver::new);
+        solvers.put("descent", DescentSolver::new);
+        solvers.put("taboo", () -> new TabooSolver(500, 5)) ; 
+        solvers.put("ptaboo", () -> new TabooSolver(500, 5, SwapEvaluator.Mode.Exact, Runtime.getRuntime().availableProcessors())) ; 
+        solvers.put("spt", () -> new GreedySolver(GreedyPriority.SPT)); 
+        solvers.put("lrpt", () -> new GreedySolver(GreedyPriority.LRPT));
+        solvers.put("estspt", () -> new GreedySolver(GreedyPriority.EST_SPT)); 
+        solvers.put("estlrpt", () -> new GreedySolver(GreedyPriority.EST_LRPT)) ; 
+        solvers.put("multidescent", () -> new MultiStartDescentSolver(Runtime.getRuntime().availableProcessors()));
+        solvers.put("islands", () -> new IslandTabooSolver(Runtime.getRuntime().availableProcessors(), 5, 100));
         // add new solvers here
     }
 
+    /** Outcome of solving one instance with one solver. */
+    private static final class Run {
+        /** Wall-clock time of the run, in milliseconds. */
+        final long runtime;
+        /** CPU time of the run, in milliseconds (-1 if not supported by the JVM), see cpuTime. */
+        final long cpuTime;
+        final int makespan;
+        /** Lookups in the caches of evaluated solutions of the solver that found / did not find the solution. */
+        final long cacheHits;
+        final long cacheMisses;
+
+        Run(long runtime, long cpuTime, int makespan, long cacheHits, long cacheMisses) {
+            this.runtime = runtime;
+            this.cpuTime = cpuTime;
+            this.makespan = makespan;
+            this.cacheHits = cacheHits;
+            this.cacheMisses = cacheMisses;
+        }
+    }
+
+    /** CPU time used so far, in nanoseconds, by the whole process or by the current thread only (-1 if it is not
+     * supported by the JVM).
+     *
+     * When runs are performed one after the other, the CPU time of a run is measured on the whole process, so that
+     * it includes the threads started by the solver itself (e.g. `ptaboo`, `multidescent` or `islands`), which are
+     * gone by the end of the run. The process also runs a few threads of its own (garbage collection and JIT
+     * compilation), which are counted as well. When runs are concurrent, only the thread that runs the solver can be
+     * told apart from the other runs. */
+    private static long cpuTime(boolean wholeProcess) {
+        if(wholeProcess) {
+            java.lang.management.OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+            if(os instanceof com.sun.management.OperatingSystemMXBean)
+                return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+            return -1;
+        }
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : -1;
+    }
+
+    /** Solves the instance with a new solver and checks the validity of its solution.
+     * @param processCpu whether the CPU time of the run is measured on the whole process (see cpuTime), which is
+     *                   only meaningful if no other run is performed at the same time
+     * @param targetMakespan makespan at which the solver stops (see SolveContext), or SolveContext.NO_TARGET
+     * @param traceFile file to which the convergence trace of the solver is exported (CSV or JSON depending on
+     *                  its extension), or null */
+    private static Run run(Supplier<Solver> solverFactory, Instance instance, boolean processCpu, long solveTimeMs,
+                           int targetMakespan, Path traceFile) {
+        Solver solver = solverFactory.get();
+        long cpuStart = cpuTime(processCpu);
+        long start = System.currentTimeMillis();
+        SolveContext context = SolveContext.withTimeout(solveTimeMs, TimeUnit.MILLISECONDS)
+                .targetMakespan(targetMakespan);
+        Result result = solver.solve(instance, context);
+        long runtime = System.currentTimeMillis() - start;
+        long cpuTime = cpuStart < 0 ? -1 : (cpuTime(processCpu) - cpuStart) / 1_000_000;
+
+        Optional<String> violation = result.schedule.firstViolation();
+        if(violation.isPresent())
+            throw new RuntimeException("solver returned an invalid schedule: " + violation.get());
+
+        assert result.schedule.isValid();
+
+        if(traceFile != null) {
+            try (Writer out = Files.newBufferedWriter(traceFile, StandardCharsets.UTF_8)) {
+                if(traceFile.toString().endsWith(".json"))
+                    result.trace.writeJson(out);
+                else
+                    result.trace.writeCsv(out);
+            } catch (IOException e) {
+                throw new UncheckedIOException("cannot write trace to " + traceFile, e);
+            }
+        }
+        return new Run(runtime, cpuTime, result.schedule.makespan(), context.cacheHits(), context.cacheMisses());
+    }
+
 
     public static void main(String[] args) {
         ArgumentParser parser = ArgumentParsers.newFor("jsp-solver").build()
@@ -56,6 +153,22 @@ public class Main {
                 .nargs("+")
                 .required(true)
                 .help("Instance(s) to solve (space separated if more than one)");
+        parser.addArgument("--parallel")
+                .setDefault(1)
+                .type(Integer.class)
+                .help("Number of (instance, solver) pairs to solve concurrently");
+        parser.addArgument("--stop-at-best-known")
+                .action(Arguments.storeTrue())
+                .help("Stop each run as soon as it finds a solution as good as the best known one");
+        parser.addArgument("--metrics")
+                .action(Arguments.storeTrue())
+                .help("Print the counters of the work performed by solvers at the end of the run (see Metrics)");
+        parser.addArgument("--trace-dir")
+                .help("Directory to which the convergence trace of each run is exported, as <instance>-<solver>.<format>");
+        parser.addArgument("--trace-format")
+                .choices("csv", "json")
+                .setDefault("csv")
+                .help("Format of the exported traces");
 
         Namespace ns = null;
         try {
@@ -90,50 +203,95 @@ public class Main {
             instances.addAll(matches);
         }
 
+        int parallelism = ns.getInt("parallel");
+        if(parallelism < 1) {
+            System.err.println("ERROR: the number of parallel runs must be positive.");
+            System.exit(1);
+        }
+
+        Path traceDir = ns.getString("trace_dir") == null ? null : Paths.get(ns.getString("trace_dir"));
+        String traceFormat = ns.getString("trace_format");
+        boolean stopAtBestKnown = ns.getBoolean("stop_at_best_known");
+
         float[] runtimes = new float[solversToTest.size()];
+        // sum of the CPU times of the runs that could measure it, and number of such runs
+        long[] cpuTimes = new long[solversToTest.size()];
+        int[] cpuSamples = new int[solversToTest.size()];
         float[] distances = new float[solversToTest.size()];
+        long[] cacheHits = new long[solversToTest.size()];
+        long[] cacheLookups = new long[solversToTest.size()];
 
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism);
         try {
-            output.print(  "                         ");
+            // submit all runs upfront, in the order of the table : with a single worker, runs are performed one
+            // after the other in this order, as results are printed
+            if(traceDir != null)
+                Files.createDirectories(traceDir);
+            List<Instance> loaded = new ArrayList<>();
+            List<List<Future<Run>>> runs = new ArrayList<>();
+            for(String instanceName : instances) {
+                Path path = Paths.get("instances/", instanceName);
+                Instance instance = Instance.load(path);
+                loaded.add(instance);
+                // the lower bound used by solvers to prove optimality is computed once, outside of timed runs
+                instance.lowerBound();
+                int target = stopAtBestKnown ? BestKnownResult.of(instanceName) : SolveContext.NO_TARGET;
+
+                List<Future<Run>> instanceRuns = new ArrayList<>();
+                for(String solverName : solversToTest) {
+                    Supplier<Solver> solverFactory = solvers.get(solverName);
+                    Path traceFile = traceDir == null ? null : traceDir.resolve(instanceName + "-" + solverName + "." + traceFormat);
+                    instanceRuns.add(workers.submit(() -> run(solverFactory, instance, parallelism == 1, solveTimeMs, target, traceFile)));
+                }
+                runs.add(instanceRuns);
+            }
+
+            output.print(  "                                ");
             for(String s : solversToTest)
-                output.printf("%-30s", s);
+                output.printf("%-34s", s);
             output.println();
-            output.print("instance size  best      ");
+            // with concurrent runs, only the thread running the solver is measured : the header says so (see below)
+            String cpuHeader = parallelism == 1 ? "cpu" : "cpu*";
+            output.print("instance size  best   lb   gap   ");
             for(String s : solversToTest) {
-                output.print("runtime makespan ecart        ");
+                output.printf("runtime %7s makespan ecart    ", cpuHeader);
             }
             output.println();
 
 
-            for(String instanceName : instances) {
+            for(int instanceId = 0 ; instanceId < instances.size() ; instanceId++) {
+                String instanceName = instances.get(instanceId);
+                Instance instance = loaded.get(instanceId);
                 int bestKnown = BestKnownResult.of(instanceName);
+                // gap between the best known result and the lower bound : 0 if the best known result is optimal
+                int lowerBound = instance.lowerBound();
+                float gap = 100f * (bestKnown - lowerBound) / (float) lowerBound;
 
-
-                Path path = Paths.get("instances/", instanceName);
-                Instance instance = Instance.fromFile(path);
-
-                output.printf("%-8s %-5s %4d      ",instanceName, instance.numJobs +"x"+instance.numTasks, bestKnown);
+                output.printf("%-8s %-5s %4d %4d %5.1f   ",instanceName, instance.numJobs +"x"+instance.numTasks, bestKnown,
+                        lowerBound, gap);
 
                 for(int solverId = 0 ; solverId < solversToTest.size() ; solverId++) {
-                    String solverName = solversToTest.get(solverId);
-                    Solver solver = solvers.get(solverName);
-                    long start = System.currentTimeMillis();
-                    long deadline = System.currentTimeMillis() + solveTimeMs;
-                    Result result = solver.solve(instance, deadline);
-                    long runtime = System.currentTimeMillis() - start;
-
-                    if(!result.schedule.isValid()) {
-                        System.err.println("ERROR: solver returned an invalid schedule");
+                    Run run;
+                    try {
+                        run = runs.get(instanceId).get(solverId).get();
+                    } catch (ExecutionException e) {
+                        System.err.println("ERROR: " + e.getCause().getMessage());
                         System.exit(1);
+                        return;
                     }
 
-                    assert result.schedule.isValid();
-                    int makespan = result.schedule.makespan();
+                    int makespan = run.makespan;
                     float dist = 100f * (makespan - bestKnown) / (float) bestKnown;
-                    runtimes[solverId] += (float) runtime / (float) instances.size();
+                    runtimes[solverId] += (float) run.runtime / (float) instances.size();
+                    if(run.cpuTime >= 0) {
+                        cpuTimes[solverId] += run.cpuTime;
+                        cpuSamples[solverId]++;
+                    }
                     distances[solverId] += dist / (float) instances.size();
+                    cacheHits[solverId] += run.cacheHits;
+                    cacheLookups[solverId] += run.cacheHits + run.cacheMisses;
 
-                    output.printf("%7d %8s %5.1f        ", runtime, makespan, dist);
+                    output.printf("%7d %7s %8s %5.1f    ", run.runtime, run.cpuTime < 0 ? "n/a" : run.cpuTime, makespan, dist);
                     output.flush();
                 }
                 output.println();
@@ -141,9 +299,30 @@ public class Main {
             }
 
 
-            output.printf("%-8s %-5s %4s      ", "AVG", "-", "-");
+            output.printf("%-8s %-5s %4s %4s %5s   ", "AVG", "-", "-", "-", "-");
+            for(int solverId = 0 ; solverId < solversToTest.size() ; solverId++) {
+                // average over the runs whose CPU time is known only
+                String cpu = cpuSamples[solverId] == 0 ? "n/a"
+                        : String.format("%.1f", (float) cpuTimes[solverId] / (float) cpuSamples[solverId]);
+                output.printf("%7.1f %7s %8s %5.1f    ", runtimes[solverId], cpu, "-", distances[solverId]);
+            }
+            output.println();
+            // percentage of the lookups in the caches of evaluated solutions that found the solution, over all runs
+            // ("-" for solvers without cache)
+            output.printf("%-8s %-5s %4s %4s %5s   ", "CACHE%", "-", "-", "-", "-");
             for(int solverId = 0 ; solverId < solversToTest.size() ; solverId++) {
-                output.printf("%7.1f %8s %5.1f        ", runtimes[solverId], "-", distances[solverId]);
+                if(cacheLookups[solverId] == 0)
+                    output.printf("%7s %7s %8s %5s    ", "-", "-", "-", "-");
+                else
+                    output.printf("%7.1f %7s %8s %5s    ", 100f * cacheHits[solverId] / cacheLookups[solverId], "-", "-", "-");
+            }
+            output.println();
+            if(parallelism > 1)
+                output.println("* CPU time of the thread running the solver only : threads started by the solver are not counted");
+
+            if(ns.getBoolean("metrics")) {
+                output.println();
+                output.print(Metrics.dump());
             }
 
 
@@ -151,6 +330,8 @@ public class Main {
         } catch (Exception e) {
             e.printStackTrace();
             System.exit(1);
+        } finally {
+            workers.shutdownNow();
         }
     }
 }
@@ -0,0 +1,100 @@
+package jobshop;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counters of the work performed by solvers, shared by all threads and exposed over JMX (see MetricsMXBean).
+ *
+ * Counters are LongAdders, which keep contended increments cheap. Collection is enabled unless the JVM is started
+ * with `-Djobshop.metrics=false` : since ENABLED is a constant, the JIT compiler then removes the instrumentation
+ * altogether.
+ */
+public final class Metrics {
+
+    /** Whether metrics are collected, fixed for the whole run. */
+    public static final boolean ENABLED = !"false".equals(System.getProperty("jobshop.metrics"));
+
+    /** Events that are counted. */
+    public enum Counter {
+        ResourceOrderDecodes, JobNumbersDecodes, NeighborEvaluations, NeighborsGenerated, TabooRejections, Improvements,
+        CacheHits, CacheMisses;
+
+        private final LongAdder count = new LongAdder();
+    }
+
+    // time of the creation or last reset of the counters, as given by System.nanoTime()
+    private static volatile long start = System.nanoTime();
+
+    static {
+        if(ENABLED) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(), new ObjectName("jobshop:type=Metrics"));
+            } catch (JMException e) {
+                // e.g. already registered by another class loader : metrics are still available through this class
+            }
+        }
+    }
+
+    private Metrics() {}
+
+    /** Counts one occurrence of the event. */
+    public static void increment(Counter counter) {
+        if(ENABLED)
+            counter.count.increment();
+    }
+
+    /** Counts several occurrences of the event. */
+    public static void add(Counter counter, long occurrences) {
+        if(ENABLED)
+            counter.count.add(occurrences);
+    }
+
+    /** Number of occurrences of the event since the creation or last reset of the counters. */
+    public static long get(Counter counter) {
+        return counter.count.sum();
+    }
+
+    /** Seconds elapsed since the creation or last reset of the counters. */
+    public static double elapsedSeconds() {
+        return (System.nanoTime() - start) / 1e9;
+    }
+
+    /** Sets all counters back to zero. */
+    public static void reset() {
+        for(Counter counter : Counter.values())
+            counter.count.reset();
+        start = System.nanoTime();
+    }
+
+    /** Human readable summary of all counters, with their average rate per second. */
+    public static String dump() {
+        if(!ENABLED)
+            return "metrics disabled (jobshop.metrics=false)\n";
+        double seconds = elapsedSeconds();
+        StringBuilder s = new StringBuilder();
+        for(Counter counter : Counter.values()) {
+            long count = get(counter);
+            s.append(String.format(Locale.ROOT, "%-20s %14d %14.1f/s%n", counter, count, count / seconds));
+        }
+        return s.toString();
+    }
+
+    private static final class Bean implements MetricsMXBean {
+        @Override public boolean isEnabled() { return ENABLED; }
+        @Override public long getResourceOrderDecodes() { return get(Counter.ResourceOrderDecodes); }
+        @Override public long getJobNumbersDecodes() { return get(Counter.JobNumbersDecodes); }
+        @Override public long getNeighborEvaluations() { return get(Counter.NeighborEvaluations); }
+        @Override public long getNeighborsGenerated() { return get(Counter.NeighborsGenerated); }
+        @Override public long getTabooRejections() { return get(Counter.TabooRejections); }
+        @Override public long getImprovements() { return get(Counter.Improvements); }
+        @Override public long getCacheHits() { return get(Counter.CacheHits); }
+        @Override public long getCacheMisses() { return get(Counter.CacheMisses); }
+        @Override public double getElapsedSeconds() { return elapsedSeconds(); }
+        @Override public void reset() { Metrics.reset(); }
+    }
+}
@@ -0,0 +1,38 @@
+package jobshop;
+
+/** Management interface of the solver metrics (see Metrics), registered as "jobshop:type=Metrics". */
+public interface MetricsMXBean {
+
+    /** Whether metrics are collected (set with the `jobshop.metrics` system property). */
+    boolean isEnabled();
+
+    /** Number of resource orders decoded into start times. */
+    long getResourceOrderDecodes();
+
+    /** Number of job numbers decoded into a schedule. */
+    long getJobNumbersDecodes();
+
+    /** Number of neighbors evaluated (estimated or decoded) by local searches. */
+    long getNeighborEvaluations();
+
+    /** Number of neighbors generated from the blocks of critical paths. */
+    long getNeighborsGenerated();
+
+    /** Number of neighbors discarded by taboo searches because they were taboo. */
+    long getTabooRejections();
+
+    /** Number of improvements of the best solution of a solver. */
+    long getImprovements();
+
+    /** Number of makespans found in a cache of evaluated solutions (see MakespanCache). */
+    long getCacheHits();
+
+    /** Number of makespans looked for in a cache of evaluated solutions but not found. */
+    long getCacheMisses();
+
+    /** Seconds elapsed since the counters were created or reset. */
+    double getElapsedSeconds();
+
+    /** Sets all counters back to zero. */
+    void reset();
+}
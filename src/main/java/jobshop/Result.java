@@ -5,18 +5,31 @@ import java.util.Optional;
 public class Result {
 
     public Result(Instance instance, Schedule schedule, ExitCause cause) {
+        this(instance, schedule, cause, new Trace());
+    }
+
+    public Result(Instance instance, Schedule schedule, ExitCause cause, Trace trace) {
         this.instance = instance;
         this.schedule = schedule;
         this.cause = cause;
+        this.trace = trace;
     }
 
     public enum ExitCause {
-        Timeout, ProvedOptimal, Blocked
+        Timeout, ProvedOptimal, Blocked,
+        /** The run was cancelled (see SolveContext.cancel). */
+        Cancelled,
+        /** The budget of iterations or evaluations of the run was exhausted. */
+        BudgetExhausted,
+        /** A solution at least as good as the target makespan of the run was found. */
+        TargetReached
     }
 
     public final Instance instance;
     public final Schedule schedule;
     public final ExitCause cause;
+    /** Improvements of the best solution during the search (empty if the solver does not record them). */
+    public final Trace trace;
 
 
 }
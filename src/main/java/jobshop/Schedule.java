@@ -4,7 +4,6 @@ package jobshop;
 import jobshop.encodings.Task;
 
 import java.util.*;
-import java.util.stream.IntStream;
 
 public class Schedule {
     public final Instance pb;
@@ -13,46 +12,105 @@ public class Schedule {
     final int[][] times;
 
     public Schedule(Instance pb, int[][] times) {
+        this(pb, times, true);
+    }
+
+    /** @param copy whether the schedule works on a copy of the array, or on the array itself (see wrap) */
+    private Schedule(Instance pb, int[][] times, boolean copy) {
         this.pb = pb;
-        this.times = new int[pb.numJobs][];
-        for(int j = 0 ; j < pb.numJobs ; j++) {
-            this.times[j] = Arrays.copyOf(times[j], pb.numTasks);
+        if(copy) {
+            this.times = new int[pb.numJobs][];
+            for(int j = 0 ; j < pb.numJobs ; j++) {
+                this.times[j] = Arrays.copyOf(times[j], pb.numTasks);
+            }
+        } else {
+            this.times = times;
         }
     }
 
+    /** Creates a schedule that uses the given array directly instead of copying it, as the constructor does.
+     * The schedule then owns the array (numJobs rows of numTasks start times) : it must not be modified afterwards. */
+    public static Schedule wrap(Instance pb, int[][] times) {
+        return new Schedule(pb, times, false);
+    }
+
     public int startTime(int job, int task) {
         return times[job][task];
     }
 
+    /** Identifiers (see Instance.taskId) of all tasks, sorted by start time. Tasks that start at the same time are
+     * sorted by identifier, i.e. by job and then by task.
+     * This is a single sort of primitive values, each one packing the start time and the identifier of a task. */
+    public int[] tasksByStartTime() {
+        long[] keys = new long[pb.numJobs * pb.numTasks];
+        for(int j = 0 ; j < pb.numJobs ; j++) {
+            for(int t = 0 ; t < pb.numTasks ; t++) {
+                int id = pb.taskId(j, t);
+                keys[id] = ((long) times[j][t] << 32) | id;
+            }
+        }
+        Arrays.sort(keys);
+        int[] tasks = new int[keys.length];
+        for(int i = 0 ; i < keys.length ; i++) {
+            tasks[i] = (int) keys[i];
+        }
+        return tasks;
+    }
+
     /** Returns true if this schedule is valid (no constraint is violated) */
     public boolean isValid() {
+        return !firstViolation().isPresent();
+    }
+
+    /** Returns a description of the first constraint violated by this schedule, if any.
+     *
+     * Precedence constraints are checked job by job. Then, for each machine, its tasks are sorted by start time
+     * and each task is only compared to the one finishing last among those starting before it, which makes
+     * the whole check O(n log n) instead of comparing every pair of tasks. */
+    public Optional<String> firstViolation() {
         for(int j = 0 ; j<pb.numJobs ; j++) {
             for(int t = 1 ; t<pb.numTasks ; t++) {
                 if(startTime(j, t-1) + pb.duration(j, t-1) > startTime(j, t))
-                    return false;
+                    return Optional.of("Task ("+j+", "+t+") starts before the end of its predecessor ("+j+", "+(t-1)+")");
             }
             for(int t = 0 ; t<pb.numTasks ; t++) {
                 if(startTime(j, t) < 0)
-                    return false;
+                    return Optional.of("Task ("+j+", "+t+") has a negative start time");
             }
         }
 
+        // for each job of the current machine, its start time and job number packed in a long
+        // (start times are known to be non-negative) so that sorting them sorts by start time
+        long[] byStartTime = new long[pb.numJobs];
         for (int machine = 0 ; machine < pb.numMachines ; machine++) {
-            for(int j1=0 ; j1<pb.numJobs ; j1++) {
-                int t1 = pb.task_with_machine(j1, machine);
-                for(int j2=j1+1 ; j2<pb.numJobs ; j2++) {
-                    int t2 = pb.task_with_machine(j2, machine);
-
-                    boolean t1_first = startTime(j1, t1) + pb.duration(j1, t1) <= startTime(j2, t2);
-                    boolean t2_first = startTime(j2, t2) + pb.duration(j2, t2) <= startTime(j1, t1);
-
-                    if(!t1_first && !t2_first)
-                        return false;
+            for(int j = 0 ; j<pb.numJobs ; j++) {
+                byStartTime[j] = ((long) startTime(j, pb.task_with_machine(j, machine)) << 32) | j;
+            }
+            Arrays.sort(byStartTime);
+
+            // job finishing last among the tasks already visited
+            int latest = -1;
+            // job finishing last among the tasks already visited that started strictly before the current one
+            int latestBefore = -1;
+            for(int i = 0 ; i < pb.numJobs ; i++) {
+                int j = (int) byStartTime[i];
+                int start = (int) (byStartTime[i] >>> 32);
+                if(i > 0 && start != (int) (byStartTime[i-1] >>> 32)) {
+                    // tasks with the previous start time now start strictly before the current one
+                    latestBefore = latest;
                 }
+                // a task of duration 0 does not overlap a task starting at the same time
+                int other = endTime(j, pb.task_with_machine(j, machine)) > start ? latest : latestBefore;
+                if(other >= 0 && endTime(other, pb.task_with_machine(other, machine)) > start) {
+                    return Optional.of("Tasks (" + other + ", " + pb.task_with_machine(other, machine) + ") and ("
+                            + j + ", " + pb.task_with_machine(j, machine) + ") overlap on machine " + machine);
+                }
+                if(latest < 0 || endTime(j, pb.task_with_machine(j, machine)) > endTime(latest, pb.task_with_machine(latest, machine)))
+                    latest = j;
             }
         }
 
-        return true;
+        return Optional.empty();
     }
 
     public int makespan() {
@@ -68,7 +126,11 @@ public class Schedule {
     }
 
     public int endTime(Task task) {
-        return startTime(task) + pb.duration(task.job, task.task);
+        return endTime(task.job, task.task);
+    }
+
+    public int endTime(int job, int task) {
+        return startTime(job, task) + pb.duration(job, task);
     }
 
     public boolean isCriticalPath(List<Task> path) {
@@ -85,53 +147,84 @@ public class Schedule {
         return true;
     }
 
+    /** Returns a critical path of the schedule : a sequence of tasks, from a task starting at time 0 to a task
+     * finishing at the makespan, in which each task starts exactly when the previous one ends.
+     *
+     * The path is built backward from the task finishing last. The predecessor of a task is its predecessor on the
+     * job if it ends exactly when the task starts, and otherwise the closest task before it on its machine that does.
+     * Tasks of each machine are sorted once by start time, so that a step does not look at all jobs. */
     public List<Task> criticalPath() {
+        // tasks by start time as in tasksByStartTime, except that tasks of duration 0 come first among the tasks
+        // starting at the same time : they can delay the others, but not the other way around
+        long[] keys = new long[pb.numJobs * pb.numTasks];
+        for(int id = 0 ; id < keys.length ; id++) {
+            long positive = pb.duration(id) > 0 ? 1L << 31 : 0;
+            keys[id] = ((long) startTime(id) << 32) | positive | id;
+        }
+        Arrays.sort(keys);
+
+        // for each task identifier, the task before it on its machine in this order (-1 for the first one)
+        int[] machinePred = new int[keys.length];
+        int[] lastOnMachine = new int[pb.numMachines];
+        Arrays.fill(lastOnMachine, -1);
+        for(long key : keys) {
+            int id = (int) (key & Integer.MAX_VALUE);
+            int machine = pb.machine(id);
+            machinePred[id] = lastOnMachine[machine];
+            lastOnMachine[machine] = id;
+        }
+
         // select task with greatest end time
-        Task ldd = IntStream.range(0, pb.numJobs)
-                .mapToObj(j -> new Task(j, pb.numTasks-1))
-                .max(Comparator.comparing(this::endTime))
-                .get();
+        int ldd = pb.taskId(0, pb.numTasks-1);
+        for(int j = 1 ; j < pb.numJobs ; j++) {
+            int id = pb.taskId(j, pb.numTasks-1);
+            if(endTime(id) > endTime(ldd))
+                ldd = id;
+        }
         assert endTime(ldd) == makespan();
 
         // list that will contain the critical path.
         // we construct it from the end, starting with the
-        // task that finishes last
-        LinkedList<Task> path = new LinkedList<>();
-        path.add(0,ldd);
+        // task that finishes last, and reverse it once complete
+        ArrayList<Task> path = new ArrayList<>();
+        path.add(pb.task(ldd));
 
-        // keep adding tasks to the path until the first task in the path
+        // keep adding tasks to the path until the last task added
         // starts a time 0
-        while(startTime(path.getFirst()) != 0) {
-            Task cur = path.getFirst();
-            int machine = pb.machine(cur.job, cur.task);
-
+        int cur = ldd;
+        while(startTime(cur) != 0) {
             // will contain the task that was delaying the start
             // of our current task
-            Optional<Task> latestPredecessor = Optional.empty();
-
-            if(cur.task > 0) {
-                // our current task has a predecessor on the job
-                Task predOnJob = new Task(cur.job, cur.task -1);
-
-                // if it was the delaying task, save it to predecessor
-                if(endTime(predOnJob) == startTime(cur))
-                    latestPredecessor = Optional.of(predOnJob);
-            }
-            if(!latestPredecessor.isPresent()) {
-                // no latest predecessor found yet, look among tasks executing on the same machine
-                latestPredecessor = IntStream.range(0, pb.numJobs)
-                        .mapToObj(j -> new Task(j, pb.task_with_machine(j, machine)))
-                        .filter(t -> endTime(t) == startTime(cur))
-                        .findFirst();
+            int latestPredecessor;
+            if(pb.taskOf(cur) > 0 && endTime(cur-1) == startTime(cur)) {
+                // our current task has a predecessor on the job and it was the delaying task
+                latestPredecessor = cur-1;
+            } else {
+                // look among the tasks starting before it on the same machine (only tasks of duration 0 can be
+                // between it and the delaying task)
+                latestPredecessor = machinePred[cur];
+                while(latestPredecessor >= 0 && endTime(latestPredecessor) != startTime(cur))
+                    latestPredecessor = machinePred[latestPredecessor];
             }
             // at this point we should have identified a latest predecessor, either on the job or on the machine
-            assert latestPredecessor.isPresent() && endTime(latestPredecessor.get()) == startTime(cur);
-            // insert predecessor at the beginning of the path
-            path.add(0, latestPredecessor.get());
+            assert latestPredecessor >= 0 && endTime(latestPredecessor) == startTime(cur);
+            path.add(pb.task(latestPredecessor));
+            cur = latestPredecessor;
         }
+        Collections.reverse(path);
         assert isCriticalPath(path);
         return path;
     }
+
+    /** Start time of the task with the given identifier (see Instance.taskId). */
+    private int startTime(int taskId) {
+        return times[pb.jobOf(taskId)][pb.taskOf(taskId)];
+    }
+
+    /** End time of the task with the given identifier (see Instance.taskId). */
+    private int endTime(int taskId) {
+        return startTime(taskId) + pb.duration(taskId);
+    }
     
 	@Override
 	public String toString() {
@@ -0,0 +1,210 @@
+package jobshop;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Conditions under which a solver stops, and what it reports while running.
+ *
+ * A solver stops as soon as `shouldStop()` is true, which happens when
+ *  - a solution whose makespan is equal to the lower bound of the instance has been found : it is optimal,
+ *  - the deadline is reached (measured with System.nanoTime(), so it does not depend on changes of the wall clock),
+ *  - the run is cancelled, possibly from another thread (see `cancel()`),
+ *  - the budget of iterations or of evaluated solutions is exhausted (what an iteration is depends on the solver),
+ *  - a solution at least as good as the target makespan has been found.
+ *
+ * Solvers call `start` with the instance they solve, and then report their progress with `countIteration`,
+ * `countEvaluations`, `countCacheLookups` and `record`, the latter adding an improvement to the trace of the run and
+ * notifying the improvement listener. All these methods are thread-safe, so that the threads of a parallel solver can
+ * share the same context. A context is meant for a single run : it must be configured before being given to a
+ * solver, and not reused afterwards.
+ */
+public final class SolveContext {
+
+    /** Called each time the best solution of a run improves. It may be called from any thread of the solver. */
+    @FunctionalInterface
+    public interface ImprovementListener {
+        void improved(long iteration, int makespan);
+    }
+
+    /** Value of the target makespan when there is none. */
+    public static final int NO_TARGET = Integer.MIN_VALUE;
+
+    // margin before the deadline at which solvers are asked to stop, so that they have time to build their result
+    private static final long DEADLINE_MARGIN_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final boolean hasDeadline;
+    // deadline of the run, as given by System.nanoTime()
+    private final long deadline;
+
+    private long maxIterations = Long.MAX_VALUE;
+    private long maxEvaluations = Long.MAX_VALUE;
+    private int targetMakespan = NO_TARGET;
+    private ImprovementListener listener = null;
+
+    // lower bound of the instance being solved, see start
+    private volatile int lowerBound = Integer.MIN_VALUE;
+    private volatile boolean cancelled = false;
+    private final AtomicLong iterations = new AtomicLong();
+    private final AtomicLong evaluations = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+    private final AtomicInteger bestMakespan = new AtomicInteger(Integer.MAX_VALUE);
+    private final Trace trace = new Trace();
+
+    private SolveContext(boolean hasDeadline, long deadline) {
+        this.hasDeadline = hasDeadline;
+        this.deadline = deadline;
+    }
+
+    /** A context without any deadline : the run only stops if the solver is done, cancelled or out of budget. */
+    public static SolveContext unlimited() {
+        return new SolveContext(false, 0);
+    }
+
+    /** A context whose deadline is the given time from now. */
+    public static SolveContext withTimeout(long timeout, TimeUnit unit) {
+        long nanos = unit.toNanos(timeout);
+        // toNanos saturates : such a timeout is longer than any run
+        if(nanos == Long.MAX_VALUE)
+            return unlimited();
+        return new SolveContext(true, System.nanoTime() + nanos);
+    }
+
+    /** A context whose deadline is the given time of the wall clock, as given by System.currentTimeMillis().
+     * This is the deadline of `Solver.solve(Instance, long)`. */
+    public static SolveContext until(long deadlineMillis) {
+        return withTimeout(deadlineMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /** Deadline of the run as a time of the wall clock, as given by System.currentTimeMillis() (Long.MAX_VALUE if
+     * there is none). This is the deadline given to solvers that only implement `Solver.solve(Instance, long)`. */
+    public long deadlineMillis() {
+        if(!hasDeadline)
+            return Long.MAX_VALUE;
+        return System.currentTimeMillis() + TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+    }
+
+    /** Stops the run after the given number of iterations (in total over all threads of the solver). */
+    public SolveContext iterationBudget(long maxIterations) {
+        this.maxIterations = maxIterations;
+        return this;
+    }
+
+    /** Stops the run after the given number of evaluated solutions (in total over all threads of the solver). */
+    public SolveContext evaluationBudget(long maxEvaluations) {
+        this.maxEvaluations = maxEvaluations;
+        return this;
+    }
+
+    /** Stops the run as soon as a solution with a makespan lower than or equal to the target is found. */
+    public SolveContext targetMakespan(int targetMakespan) {
+        this.targetMakespan = targetMakespan;
+        return this;
+    }
+
+    /** Notifies the listener of each improvement of the best solution. */
+    public SolveContext onImprovement(ImprovementListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /** Called by a solver when it starts solving the instance, before reporting any solution : the run then stops
+     * with ProvedOptimal as soon as a solution reaches the lower bound of the instance (see Instance.lowerBound()). */
+    public void start(Instance instance) {
+        lowerBound = instance.lowerBound();
+    }
+
+    /** Whether the best solution recorded so far is optimal, its makespan being equal to the lower bound of the
+     * instance. */
+    public boolean isProvedOptimal() {
+        return bestMakespan.get() <= lowerBound;
+    }
+
+    /** Asks the solver to stop as soon as possible. Can be called from any thread. */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /** Whether the solver must stop now, returning the best solution found so far. */
+    public boolean shouldStop() {
+        return stopCause() != null;
+    }
+
+    /** The reason why the solver must stop now, or null if it can go on. */
+    public Result.ExitCause stopCause() {
+        if(isProvedOptimal())
+            return Result.ExitCause.ProvedOptimal;
+        if(cancelled)
+            return Result.ExitCause.Cancelled;
+        if(bestMakespan.get() <= targetMakespan)
+            return Result.ExitCause.TargetReached;
+        if(iterations.get() >= maxIterations || evaluations.get() >= maxEvaluations)
+            return Result.ExitCause.BudgetExhausted;
+        if(hasDeadline && deadline - System.nanoTime() <= DEADLINE_MARGIN_NANOS)
+            return Result.ExitCause.Timeout;
+        return null;
+    }
+
+    /** The reason why the solver stopped : the one given by the context if it asked the solver to stop, or
+     * `otherwise` if the solver stopped by itself (e.g. Blocked in a local optimum). */
+    public Result.ExitCause exitCause(Result.ExitCause otherwise) {
+        Result.ExitCause cause = stopCause();
+        return cause == null ? otherwise : cause;
+    }
+
+    /** Counts one iteration of the solver. */
+    public void countIteration() {
+        iterations.incrementAndGet();
+    }
+
+    /** Counts solutions (or neighbors) evaluated by the solver. */
+    public void countEvaluations(long count) {
+        evaluations.addAndGet(count);
+    }
+
+    /** Counts lookups of solutions in the cache of evaluated solutions of the solver (see
+     * jobshop.solvers.MakespanCache), so that its hit rate can be reported. */
+    public void countCacheLookups(long hits, long misses) {
+        cacheHits.addAndGet(hits);
+        cacheMisses.addAndGet(misses);
+    }
+
+    /** Reports that a solution with the given makespan was found at the given iteration. If it improves on the best
+     * solution of the run, it is added to the trace and the improvement listener is notified.
+     * @return true if the solution improves on the best solution of the run */
+    public boolean record(long iteration, int makespan) {
+        if(!trace.record(iteration, makespan))
+            return false;
+        bestMakespan.accumulateAndGet(makespan, Math::min);
+        if(listener != null)
+            listener.improved(iteration, makespan);
+        return true;
+    }
+
+    /** Number of iterations counted so far. */
+    public long iterations() {
+        return iterations.get();
+    }
+
+    /** Number of evaluations counted so far. */
+    public long evaluations() {
+        return evaluations.get();
+    }
+
+    /** Number of cache lookups that found the solution, counted so far. */
+    public long cacheHits() {
+        return cacheHits.get();
+    }
+
+    /** Number of cache lookups that did not find the solution, counted so far. */
+    public long cacheMisses() {
+        return cacheMisses.get();
+    }
+
+    /** Improvements recorded so far. */
+    public Trace trace() {
+        return trace;
+    }
+}
@@ -2,6 +2,21 @@ package jobshop;
 
 public interface Solver {
 
+    /** Solves the instance until the given deadline, as given by System.currentTimeMillis(). */
     Result solve(Instance instance, long deadline);
 
+    /** Solves the instance, stopping as soon as the context requires it (see SolveContext).
+     *
+     * Solvers that support all stop conditions of a context override this method, and implement
+     * solve(Instance, long) as solve(instance, SolveContext.until(deadline)). By default, the solver is only given
+     * the deadline of the context : it cannot be cancelled nor limited by a budget or a target, and only its final
+     * solution is recorded in the context. */
+    default Result solve(Instance instance, SolveContext context) {
+        context.start(instance);
+        Result result = solve(instance, context.deadlineMillis());
+        if(result.schedule != null)
+            context.record(0, result.schedule.makespan());
+        return result;
+    }
+
 }
@@ -0,0 +1,89 @@
+package jobshop;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Convergence trace of a solver : the time, iteration and makespan of each improvement of its best solution.
+ *
+ * Points are stored in primitive arrays that only grow (by doubling) when a point is recorded, so solvers can record
+ * each improvement without any allocation in the iterations that do not improve. Recording is thread-safe, and a point
+ * that does not improve on the last recorded makespan is ignored : solvers running several threads can record the
+ * improvements of all their threads in the same trace, which then follows their overall best solution.
+ */
+public class Trace {
+
+    // time origin of the trace, as given by System.nanoTime()
+    private final long start;
+
+    private int size = 0;
+    // for each point, time elapsed since the start of the trace (in nanoseconds), iteration and makespan
+    private long[] times = new long[16];
+    private long[] iterations = new long[16];
+    private int[] makespans = new int[16];
+
+    /** Creates an empty trace, whose time origin is now. */
+    public Trace() {
+        this.start = System.nanoTime();
+    }
+
+    /** Records that a solution with the given makespan was found at the given iteration, if it improves on the
+     * last recorded one. The meaning of an iteration depends on the solver.
+     * @return true if the point was recorded */
+    public synchronized boolean record(long iteration, int makespan) {
+        if(size > 0 && makespan >= makespans[size-1])
+            return false;
+        if(size == times.length) {
+            times = Arrays.copyOf(times, 2 * size);
+            iterations = Arrays.copyOf(iterations, 2 * size);
+            makespans = Arrays.copyOf(makespans, 2 * size);
+        }
+        times[size] = System.nanoTime() - start;
+        iterations[size] = iteration;
+        makespans[size] = makespan;
+        size++;
+        Metrics.increment(Metrics.Counter.Improvements);
+        return true;
+    }
+
+    /** Number of recorded points. */
+    public synchronized int size() {
+        return size;
+    }
+
+    /** Time at which the i-th point was recorded, in milliseconds since the start of the trace. */
+    public synchronized double timeMillis(int i) {
+        return times[i] / 1e6;
+    }
+
+    /** Iteration at which the i-th point was recorded. */
+    public synchronized long iteration(int i) {
+        return iterations[i];
+    }
+
+    /** Makespan of the i-th point. */
+    public synchronized int makespan(int i) {
+        return makespans[i];
+    }
+
+    /** Writes the trace as CSV, with a header line. */
+    public synchronized void writeCsv(Writer out) throws IOException {
+        out.write("time_ms,iteration,makespan\n");
+        for(int i = 0 ; i < size ; i++) {
+            out.write(String.format(Locale.ROOT, "%.3f,%d,%d\n", timeMillis(i), iterations[i], makespans[i]));
+        }
+    }
+
+    /** Writes the trace as a JSON array of {"time_ms", "iteration", "makespan"} objects. */
+    public synchronized void writeJson(Writer out) throws IOException {
+        out.write("[");
+        for(int i = 0 ; i < size ; i++) {
+            out.write(i == 0 ? "\n" : ",\n");
+            out.write(String.format(Locale.ROOT, "  {\"time_ms\": %.3f, \"iteration\": %d, \"makespan\": %d}",
+                    timeMillis(i), iterations[i], makespans[i]));
+        }
+        out.write("\n]\n");
+    }
+}
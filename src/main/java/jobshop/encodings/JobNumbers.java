@@ -2,11 +2,10 @@ package jobshop.encodings;
 
 import jobshop.Encoding;
 import jobshop.Instance;
+import jobshop.Metrics;
 import jobshop.Schedule;
 
 import java.util.Arrays;
-import java.util.Comparator;
-import java.util.stream.IntStream;
 
 /** Représentation par numéro de job. */
 public class JobNumbers extends Encoding {
@@ -30,28 +29,35 @@ public class JobNumbers extends Encoding {
 
         this.jobs = new int[instance.numJobs * instance.numTasks];
 
-        // for each job indicates which is the next task to be scheduled
-        int[] nextOnJob = new int[instance.numJobs];
-
-        while(Arrays.stream(nextOnJob).anyMatch(t -> t < instance.numTasks)) {
-            Task next = IntStream
-                    // for all jobs numbers
-                    .range(0, instance.numJobs)
-                    // build the next task for this job
-                    .mapToObj(j -> new Task(j, nextOnJob[j]))
-                    // only keep valid tasks (some jobs have no task left to be executed)
-                    .filter(t -> t.task < instance.numTasks)
-                    // select the task with the earliest execution time
-                    .min(Comparator.comparing(t -> schedule.startTime(t.job, t.task)))
-                    .get();
-
-            this.jobs[nextToSet++] = next.job;
-            nextOnJob[next.job] += 1;
+        // in a valid schedule, the tasks of a job start in order : taking all tasks by start time (ties broken by job,
+        // then by task) always gives the next task of a job with the earliest start time
+        for(int id : schedule.tasksByStartTime()) {
+            this.jobs[nextToSet++] = instance.jobOf(id);
+        }
+    }
+
+    /** Creates the job numbers of the schedule of a resource order, without building this schedule : jobs appear in a
+     * topological order of the disjunctive graph of the resource order, which both encodings decode to the same
+     * schedule.
+     * @throws IllegalArgumentException if the resource order has no schedule (it contains a cycle or is incomplete) */
+    public JobNumbers(ResourceOrder order) {
+        super(order.instance);
+
+        int numTasks = instance.numJobs * instance.numTasks;
+        this.jobs = new int[numTasks];
+
+        int[] topologicalOrder = new int[numTasks];
+        if(order.decode(new int[numTasks], topologicalOrder) < 0)
+            throw new IllegalArgumentException("The resource order has no schedule (it contains a cycle or is incomplete)");
+        for(int id : topologicalOrder) {
+            this.jobs[nextToSet++] = instance.jobOf(id);
         }
     }
 
     @Override
     public Schedule toSchedule() {
+        Metrics.increment(Metrics.Counter.JobNumbersDecodes);
+
         // time at which each machine is going to be freed
         int[] nextFreeTimeResource = new int[instance.numMachines];
 
@@ -74,7 +80,40 @@ public class JobNumbers extends Encoding {
             nextTask[job] = task + 1;
         }
 
-        return new Schedule(instance, startTimes);
+        return Schedule.wrap(instance, startTimes);
+    }
+
+    @Override
+    public int evaluateMakespan(int cutoff) {
+        Metrics.increment(Metrics.Counter.JobNumbersDecodes);
+
+        // same decoding as toSchedule, where only the end of the last scheduled task of each job is kept
+        int[] nextFreeTimeResource = scratch(0, instance.numMachines);
+        Arrays.fill(nextFreeTimeResource, 0, instance.numMachines, 0);
+        // identifier of the next task of each job
+        int[] nextTask = scratch(1, instance.numJobs);
+        int[] jobEnd = scratch(2, instance.numJobs);
+        for(int job = 0 ; job < instance.numJobs ; job++) {
+            nextTask[job] = instance.taskId(job, 0);
+            jobEnd[job] = 0;
+        }
+
+        int makespan = 0;
+        for(int job : jobs) {
+            int id = nextTask[job]++;
+            int machine = instance.machine(id);
+            int start = Math.max(jobEnd[job], nextFreeTimeResource[machine]);
+            // the task and the rest of its job cannot end before start + remainingWork
+            int bound = start + instance.remainingWork(id);
+            if(bound > cutoff)
+                return bound;
+            int end = start + instance.duration(id);
+
+            jobEnd[job] = end;
+            nextFreeTimeResource[machine] = end;
+            makespan = Math.max(makespan, end);
+        }
+        return makespan;
     }
 
     @Override
@@ -2,28 +2,40 @@ package jobshop.encodings;
 
 import jobshop.Encoding;
 import jobshop.Instance;
+import jobshop.Metrics;
 import jobshop.Schedule;
 
-import java.util.Comparator;
-import java.util.Optional;
-import java.util.stream.IntStream;
+import java.util.Arrays;
 
 public class ResourceOrder extends Encoding {
 
-    // for each machine m, taskByMachine[m] is an array of tasks to be
-    // executed on this machine in the same order
-    public final Task[][] tasksByMachine;
+    /** Value of an slot of `taskIds` in which no task has been placed yet. */
+    public static final int EMPTY = -1;
+
+    // for each machine m, the identifiers (see Instance.taskId) of the tasks to be executed
+    // on this machine, in order. All machines are packed in a single array :
+    // the i-th task of machine m is at index m * numJobs + i
+    private final int[] taskIds;
+
+    // for each task identifier, index of the task in the order of its machine (EMPTY if not placed yet)
+    private final int[] positionOfTask;
 
     // for each machine, indicate on many tasks have been initialized
     public final int[] nextFreeSlot;
 
+    // Zobrist hash of the content of taskIds (see zobristHash)
+    private long hash = 0;
+
     /** Creates a new empty resource order. */
     public ResourceOrder(Instance instance)
     {
         super(instance);
 
-        // matrix of null elements (null is the default value of objects)
-        tasksByMachine = new Task[instance.numMachines][instance.numJobs];
+        // no task placed on any machine
+        taskIds = new int[instance.numMachines * instance.numJobs];
+        Arrays.fill(taskIds, EMPTY);
+        positionOfTask = new int[instance.numJobs * instance.numTasks];
+        Arrays.fill(positionOfTask, EMPTY);
 
         // no task scheduled on any machine (0 is the default value)
         nextFreeSlot = new int[instance.numMachines];
@@ -32,83 +44,306 @@ public class ResourceOrder extends Encoding {
     /** Creates a resource order from a schedule. */
     public ResourceOrder(Schedule schedule)
     {
-        super(schedule.pb);
-        Instance pb = schedule.pb;
+        this(schedule.pb);
+
+        // tasks of each machine are appended in the order of their start times (ties broken by job)
+        for(int id : schedule.tasksByStartTime()) {
+            int machine = instance.machine(id);
+            setTask(machine, nextFreeSlot[machine]++, id);
+        }
+    }
+
+    /** Creates the resource order of the schedule of some job numbers, without building this schedule : the tasks of
+     * each machine are in the order in which they appear in the job numbers. */
+    public ResourceOrder(JobNumbers jobNumbers)
+    {
+        this(jobNumbers.instance);
+
+        // for each job, identifier of its next task
+        int[] nextTask = new int[instance.numJobs];
+        for(int job = 0 ; job < instance.numJobs ; job++) {
+            nextTask[job] = instance.taskId(job, 0);
+        }
+        for(int job : jobNumbers.jobs) {
+            int id = nextTask[job]++;
+            int machine = instance.machine(id);
+            setTask(machine, nextFreeSlot[machine]++, id);
+        }
+    }
+
+    /** Identifier of the task at the given index of the machine's order, or EMPTY if there is none. */
+    public int taskAt(int machine, int index) {
+        return taskIds[machine * instance.numJobs + index];
+    }
+
+    /** Task at the given index of the machine's order, or null if there is none. */
+    public Task getTask(int machine, int index) {
+        int id = taskAt(machine, index);
+        return id == EMPTY ? null : instance.task(id);
+    }
+
+    /** For each machine, the tasks to be executed on this machine, in order (null where no task has been placed).
+     * The arrays are built on each call : modifying them does not change this order (see setTask and swap). */
+    public Task[][] tasksByMachine() {
+        Task[][] tasks = new Task[instance.numMachines][instance.numJobs];
+        for(int m = 0 ; m < instance.numMachines ; m++) {
+            for(int i = 0 ; i < instance.numJobs ; i++) {
+                tasks[m][i] = getTask(m, i);
+            }
+        }
+        return tasks;
+    }
+
+    /** Index of the given task in the order of its machine, or EMPTY if it has not been placed. */
+    public int positionOf(int taskId) {
+        return positionOfTask[taskId];
+    }
+
+    /** Places the task with the given identifier at the given index of the machine's order. */
+    public void setTask(int machine, int index, int taskId) {
+        int slot = machine * instance.numJobs + index;
+        int previous = taskIds[slot];
+        if(previous != EMPTY) {
+            hash ^= zobrist(previous, index);
+            if(positionOfTask[previous] == index)
+                positionOfTask[previous] = EMPTY;
+        }
+        taskIds[slot] = taskId;
+        positionOfTask[taskId] = index;
+        hash ^= zobrist(taskId, index);
+    }
+
+    /** Places the task at the given index of the machine's order. */
+    public void setTask(int machine, int index, Task task) {
+        setTask(machine, index, instance.taskId(task));
+    }
+
+    /** Exchanges the tasks at indices i1 and i2 of the machine's order. */
+    public void swap(int machine, int i1, int i2) {
+        int offset = machine * instance.numJobs;
+        int id1 = taskIds[offset + i1];
+        int id2 = taskIds[offset + i2];
+        taskIds[offset + i1] = id2;
+        taskIds[offset + i2] = id1;
+        positionOfTask[id1] = i2;
+        positionOfTask[id2] = i1;
+        hash ^= zobrist(id1, i1) ^ zobrist(id2, i2) ^ zobrist(id1, i2) ^ zobrist(id2, i1);
+    }
+
+    /** 64 bits hash of this resource order, such that two orders of the same instance with the same tasks at the
+     * same positions have the same hash.
+     *
+     * This is a Zobrist hash : the XOR of a pseudo-random key for each (task, index in its machine) pair of the order.
+     * It is updated incrementally by `setTask` and `swap` (a swap only changes four keys), so it is always available
+     * in O(1). Keys are derived from the pair with a mixing function rather than stored in a table. */
+    public long zobristHash() {
+        return hash;
+    }
 
-        this.tasksByMachine = new Task[pb.numMachines][];
-        this.nextFreeSlot = new int[instance.numMachines];
+    /** Zobrist hash that this order would have after exchanging the tasks at indices i1 and i2 of the machine's
+     * order (see swap), computed in O(1) without modifying it. */
+    public long zobristHashAfterSwap(int machine, int i1, int i2) {
+        int offset = machine * instance.numJobs;
+        int id1 = taskIds[offset + i1];
+        int id2 = taskIds[offset + i2];
+        return hash ^ zobrist(id1, i1) ^ zobrist(id2, i2) ^ zobrist(id1, i2) ^ zobrist(id2, i1);
+    }
+
+    /** Pseudo-random key of the task at the given index of its machine (SplitMix64 of the pair). */
+    private static long zobrist(int taskId, int index) {
+        long z = (((long) taskId << 32) | index) * 0x9e3779b97f4a7c15L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /** Computes the earliest start time of every task by traversing the disjunctive graph in topological order.
+     *
+     * A task is ready as soon as both its predecessor on the job and its predecessor on the machine have been
+     * scheduled. Ready tasks are kept in a queue that is stored in `topologicalOrder` (which thus ends up containing
+     * all tasks in the order they were scheduled), so that each task and each arc is visited exactly once.
+     *
+     * Only the first numJobs * numTasks elements of both arrays are used, so they can be larger (e.g. buffers reused
+     * for instances of different sizes).
+     *
+     * @param startTimes output : start time of each task, indexed by task identifier (size at least numJobs * numTasks)
+     * @param topologicalOrder output : task identifiers in a topological order of the graph (size at least
+     *                         numJobs * numTasks)
+     * @return the makespan of the corresponding schedule, or -1 if the resource order contains a cycle
+     *         (or is incomplete), in which case the content of both arrays is unspecified.
+     */
+    public int decode(int[] startTimes, int[] topologicalOrder) {
+        return decode(startTimes, topologicalOrder, Integer.MAX_VALUE);
+    }
+
+    /** Same as decode(startTimes, topologicalOrder), but stops as soon as the makespan is known to be greater than
+     * the cutoff (see Encoding.evaluateMakespan(int)), in which case the content of both arrays is unspecified.
+     *
+     * @return the makespan if it is lower than or equal to the cutoff, a lower bound of the makespan greater than
+     *         the cutoff, or -1 if the resource order contains a cycle (or is incomplete).
+     */
+    public int decode(int[] startTimes, int[] topologicalOrder, int cutoff) {
+        Metrics.increment(Metrics.Counter.ResourceOrderDecodes);
+        final int numTasks = instance.numTasks;
+        final int numAllTasks = instance.numJobs * numTasks;
+        // a negative start time indicates a task that has not been scheduled yet
+        Arrays.fill(startTimes, 0, numAllTasks, -1);
+
+        // the queue of ready tasks is [head, tail) in topologicalOrder
+        int head = 0;
+        int tail = 0;
+        // initially, tasks that are first on both their job and their machine are ready
+        for(int m = 0 ; m < instance.numMachines ; m++) {
+            int id = taskAt(m, 0);
+            if(id != EMPTY && instance.taskOf(id) == 0)
+                topologicalOrder[tail++] = id;
+        }
 
-        for(int m = 0 ; m<schedule.pb.numMachines ; m++) {
-            final int machine = m;
+        int makespan = 0;
+        while(head < tail) {
+            int id = topologicalOrder[head++];
+            int task = instance.taskOf(id);
+            int machine = instance.machine(id);
+            int position = positionOfTask[id];
 
-            // for thi machine, find all tasks that are executed on it and sort them by their start time
-            tasksByMachine[m] =
-                    IntStream.range(0, pb.numJobs) // all job numbers
-                            .mapToObj(j -> new Task(j, pb.task_with_machine(j, machine))) // all tasks on this machine (one per job)
-                            .sorted(Comparator.comparing(t -> schedule.startTime(t.job, t.task))) // sorted by start time
-                            .toArray(Task[]::new); // as new array and store in tasksByMachine
+            // earliest start time : after the end of its predecessors on the job and on the machine
+            int est = 0;
+            if(task > 0)
+                est = startTimes[id-1] + instance.duration(id-1);
+            if(position > 0) {
+                int pred = taskAt(machine, position-1);
+                est = Math.max(est, startTimes[pred] + instance.duration(pred));
+            }
+            startTimes[id] = est;
+            makespan = Math.max(makespan, est + instance.duration(id));
+            // the task and the rest of its job cannot end before est + remainingWork
+            int bound = est + instance.remainingWork(id);
+            if(bound > cutoff)
+                return bound;
 
-            // indicate that all tasks have been initialized for machine m
-            nextFreeSlot[m] = instance.numJobs;
+            // successor on the job is ready if its predecessor on the machine is already scheduled
+            if(task < numTasks-1) {
+                int succ = id+1;
+                int succPosition = positionOfTask[succ];
+                if(succPosition == 0 || (succPosition > 0 && startTimes[taskAt(instance.machine(succ), succPosition-1)] >= 0))
+                    topologicalOrder[tail++] = succ;
+            }
+            // successor on the machine is ready if its predecessor on the job is already scheduled
+            if(position < instance.numJobs-1) {
+                int succ = taskAt(machine, position+1);
+                if(succ != EMPTY && (instance.taskOf(succ) == 0 || startTimes[succ-1] >= 0))
+                    topologicalOrder[tail++] = succ;
+            }
         }
+        // if some tasks were never ready, they are part of a cycle (or missing from the order)
+        return tail == numAllTasks ? makespan : -1;
+    }
+
+    /** Identifies the blocks of a critical path of the schedule corresponding to this resource order.
+     *
+     * A block is a maximal sequence of at least two consecutive tasks of the critical path that execute on the same
+     * machine. Tasks of a block are contiguous in the order of their machine, so a block is represented by three
+     * integers : machine, index of its first task and index of its last task.
+     *
+     * The critical path is built backward from the task finishing last : the predecessor of a task on the path is
+     * its predecessor on the job if it ends exactly when the task starts, and its predecessor on the machine otherwise.
+     *
+     * @param startTimes start times of the tasks in this order, as computed by `decode`
+     * @param blocks output : blocks in the order they appear on the path, as consecutive
+     *               (machine, firstTask, lastTask) triples. Must hold at least 3 * (numJobs * numTasks / 2) elements.
+     * @return the number of blocks found
+     */
+    public int criticalBlocks(int[] startTimes, int[] blocks) {
+        // select task with greatest end time
+        int last = EMPTY;
+        int makespan = -1;
+        for(int j = 0 ; j < instance.numJobs ; j++) {
+            int id = instance.taskId(j, instance.numTasks-1);
+            int end = startTimes[id] + instance.duration(id);
+            if(end > makespan) {
+                makespan = end;
+                last = id;
+            }
+        }
+
+        // walk back on the critical path, starting from the last task, and record blocks as they are encountered
+        int numBlocks = 0;
+        int cur = last;
+        int blockEnd = positionOfTask[cur];
+        int blockMachine = instance.machine(cur);
+        while(true) {
+            int pred = EMPTY;
+            if(startTimes[cur] != 0) {
+                if(instance.taskOf(cur) > 0 && startTimes[cur-1] + instance.duration(cur-1) == startTimes[cur])
+                    pred = cur-1;
+                else
+                    pred = taskAt(blockMachine, positionOfTask[cur]-1);
+            }
+            if(pred == EMPTY || instance.machine(pred) != blockMachine) {
+                // cur is the first task of the current block
+                if(positionOfTask[cur] < blockEnd) {
+                    blocks[3*numBlocks] = blockMachine;
+                    blocks[3*numBlocks+1] = positionOfTask[cur];
+                    blocks[3*numBlocks+2] = blockEnd;
+                    numBlocks++;
+                }
+                if(pred == EMPTY)
+                    break;
+                blockMachine = instance.machine(pred);
+                blockEnd = positionOfTask[pred];
+            }
+            cur = pred;
+        }
+
+        // blocks were found from the end of the path, put them back in the order of the path
+        for(int i = 0, k = numBlocks-1 ; i < k ; i++, k--) {
+            for(int field = 0 ; field < 3 ; field++) {
+                int tmp = blocks[3*i+field];
+                blocks[3*i+field] = blocks[3*k+field];
+                blocks[3*k+field] = tmp;
+            }
+        }
+        return numBlocks;
     }
 
     @Override
     public Schedule toSchedule() {
-        // indicate for each task that have been scheduled, its start time
-        int [][] startTimes = new int [instance.numJobs][instance.numTasks];
-
-        // for each job, how many tasks have been scheduled (0 initially)
-        int[] nextToScheduleByJob = new int[instance.numJobs];
-
-        // for each machine, how many tasks have been scheduled (0 initially)
-        int[] nextToScheduleByMachine = new int[instance.numMachines];
-
-        // for each machine, earliest time at which the machine can be used
-        int[] releaseTimeOfMachine = new int[instance.numMachines];
-
-
-        // loop while there remains a job that has unscheduled tasks
-        while(IntStream.range(0, instance.numJobs).anyMatch(m -> nextToScheduleByJob[m] < instance.numTasks)) {
-
-            // selects a task that has noun scheduled predecessor on its job and machine :
-            //  - it is the next to be schedule on a machine
-            //  - it is the next to be scheduled on its job
-            // if there is no such task, we have cyclic dependency and the solution is invalid
-            Optional<Task> schedulable =
-                    IntStream.range(0, instance.numMachines) // all machines ...
-                    .filter(m -> nextToScheduleByMachine[m] < instance.numJobs) // ... with unscheduled jobs
-                    .mapToObj(m -> this.tasksByMachine[m][nextToScheduleByMachine[m]]) // tasks that are next to schedule on a machine ...
-                    .filter(task -> task.task == nextToScheduleByJob[task.job])  // ... and on their job
-                    .findFirst(); // select the first one if any
-
-            if(schedulable.isPresent()) {
-                // we found a schedulable task, lets call it t
-                Task t = schedulable.get();
-                int machine = instance.machine(t.job, t.task);
-
-                // compute the earliest start time (est) of the task
-                int est = t.task == 0 ? 0 : startTimes[t.job][t.task-1] + instance.duration(t.job, t.task-1);
-                est = Math.max(est, releaseTimeOfMachine[instance.machine(t)]);
-                startTimes[t.job][t.task] = est;
-
-                // mark the task as scheduled
-                nextToScheduleByJob[t.job]++;
-                nextToScheduleByMachine[machine]++;
-                // increase the release time of the machine
-                releaseTimeOfMachine[machine] = est + instance.duration(t.job, t.task);
-            } else {
-                // no tasks are schedulable, there is no solution for this resource ordering
-                return null;
-            }
+        int[] startTimes = new int[instance.numJobs * instance.numTasks];
+        int[] topologicalOrder = new int[instance.numJobs * instance.numTasks];
+
+        if(decode(startTimes, topologicalOrder) < 0) {
+            // there is no solution for this resource ordering
+            return null;
         }
-        // we exited the loop : all tasks have been scheduled successfully
-        return new Schedule(instance, startTimes);
+
+        int[][] times = new int[instance.numJobs][];
+        for(int j = 0 ; j < instance.numJobs ; j++) {
+            times[j] = Arrays.copyOfRange(startTimes, instance.taskId(j, 0), instance.taskId(j, 0) + instance.numTasks);
+        }
+        return Schedule.wrap(instance, times);
+    }
+
+    @Override
+    public int evaluateMakespan(int cutoff) {
+        int numTasks = instance.numJobs * instance.numTasks;
+        return decode(scratch(0, numTasks), scratch(1, numTasks), cutoff);
     }
 
     /** Creates an exact copy of this resource order. */
     public ResourceOrder copy() {
-        return new ResourceOrder(this.toSchedule());
+        ResourceOrder copy = new ResourceOrder(instance);
+        copy.copyFrom(this);
+        return copy;
+    }
+
+    /** Overwrites this resource order with the content of another one, for the same instance.
+     * This allows taking snapshots of a solution without any allocation. */
+    public void copyFrom(ResourceOrder other) {
+        assert other.instance == instance;
+        System.arraycopy(other.taskIds, 0, taskIds, 0, taskIds.length);
+        System.arraycopy(other.positionOfTask, 0, positionOfTask, 0, positionOfTask.length);
+        System.arraycopy(other.nextFreeSlot, 0, nextFreeSlot, 0, nextFreeSlot.length);
+        hash = other.hash;
     }
 
     @Override
@@ -120,7 +355,7 @@ public class ResourceOrder extends Encoding {
             s.append("Machine ").append(m).append(" : ");
             for(int j=0; j<instance.numJobs; j++)
             {
-                s.append(tasksByMachine[m][j]).append(" ; ");
+                s.append(getTask(m, j)).append(" ; ");
             }
             s.append("\n");
         }
@@ -128,4 +363,4 @@ public class ResourceOrder extends Encoding {
         return s.toString();
     }
 
-}
\ No newline at end of file
+}
@@ -2,12 +2,20 @@ package jobshop.solvers;
 
 import jobshop.Instance;
 import jobshop.Result;
+import jobshop.Schedule;
+import jobshop.SolveContext;
 import jobshop.Solver;
 import jobshop.encodings.JobNumbers;
 
 public class BasicSolver implements Solver {
     @Override
     public Result solve(Instance instance, long deadline) {
+        return solve(instance, SolveContext.until(deadline));
+    }
+
+    @Override
+    public Result solve(Instance instance, SolveContext context) {
+        context.start(instance);
 
         JobNumbers sol = new JobNumbers(instance);
         for(int t = 0 ; t<instance.numTasks ; t++) {
@@ -16,6 +24,9 @@ public class BasicSolver implements Solver {
             }
         }
 
-        return new Result(instance, sol.toSchedule(), Result.ExitCause.Blocked);
+        Schedule schedule = sol.toSchedule();
+        context.record(0, schedule.makespan());
+        Result.ExitCause exit = context.isProvedOptimal() ? Result.ExitCause.ProvedOptimal : Result.ExitCause.Blocked;
+        return new Result(instance, schedule, exit, context.trace());
     }
 }
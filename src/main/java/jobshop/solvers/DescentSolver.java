@@ -3,14 +3,15 @@ package jobshop.solvers;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 import jobshop.Instance;
+import jobshop.Metrics;
 import jobshop.Result;
 import jobshop.Result.ExitCause;
-import jobshop.Schedule;
+import jobshop.SolveContext;
 import jobshop.Solver;
 import jobshop.encodings.ResourceOrder;
-import jobshop.encodings.Task;
 
 public class DescentSolver implements Solver {
 
@@ -45,6 +46,14 @@ public class DescentSolver implements Solver {
         }
     }
 
+    /** A modification of a ResourceOrder that is performed in place and can be reverted. */
+    public interface Move {
+        /** Apply this move on the given resource order, transforming it into a new solution. */
+        void applyOn(ResourceOrder order);
+        /** Revert this move on a resource order on which it was the last move applied. */
+        void undoOn(ResourceOrder order);
+    }
+
     /**
      * Represents a swap of two tasks on the same machine in a ResourceOrder encoding.
      *
@@ -60,7 +69,7 @@ public class DescentSolver implements Solver {
      * machine 1 : (2,1) (0,2) (1,1)
      * machine 2 : ...
      */
-    static class Swap {
+    static class Swap implements Move {
         // machine on which to perform the swap
         final int machine;
         // index of one task to be swapped
@@ -75,10 +84,15 @@ public class DescentSolver implements Solver {
         }
 
         /** Apply this swap on the given resource order, transforming it into a new solution. */
+        @Override
         public void applyOn(ResourceOrder order) {
-        	Task aux = order.tasksByMachine[machine][t1]; 
-        	order.tasksByMachine[machine][t1] = order.tasksByMachine[machine][t2] ; 
-        	order.tasksByMachine[machine][t2] = aux ; 
+        	order.swap(machine, t1, t2);
+        }
+
+        /** A swap is its own inverse. */
+        @Override
+        public void undoOn(ResourceOrder order) {
+        	order.swap(machine, t1, t2);
         }
         
         public String toString() {
@@ -87,71 +101,169 @@ public class DescentSolver implements Solver {
     }
 
 
+    /** How neighbors are evaluated : exact decoding or estimation from heads and tails. */
+    final SwapEvaluator.Mode evaluationMode;
+
+    public DescentSolver() {
+        this(SwapEvaluator.Mode.Approximate);
+    }
+
+    public DescentSolver(SwapEvaluator.Mode evaluationMode) {
+        this.evaluationMode = evaluationMode;
+    }
+
     @Override
     public Result solve(Instance instance, long deadline) {
+        return solve(instance, SolveContext.until(deadline));
+    }
+
+    @Override
+    public Result solve(Instance instance, SolveContext context) {
+    	context.start(instance) ; 
     	//initialization of result
+        ResourceOrder bestOrder = initialOrder(instance); 
+        SwapEvaluator evaluator = new SwapEvaluator(instance, evaluationMode) ; 
+        
+        boolean blocked = descend(bestOrder, evaluator, context, true) ; 
+        context.countCacheLookups(evaluator.cacheHits(), evaluator.cacheMisses()) ; 
+        //a local optimum may also be a proved optimum
+        ExitCause exit = (blocked && !context.isProvedOptimal() ? ExitCause.Blocked : context.exitCause(ExitCause.Timeout)) ; 
+        return new Result(instance, bestOrder.toSchedule(), exit, context.trace()); 
+    }
+
+    /** Solution from which the search starts, built with the EST_LRPT greedy heuristic. */
+    ResourceOrder initialOrder(Instance instance) {
     	GreedySolver greedySolver = new GreedySolver(GreedyPriority.EST_LRPT) ;  
-    	Result result = greedySolver.solve(instance, System.currentTimeMillis() + 10);
-        ResourceOrder bestOrder = new ResourceOrder(result.schedule); 
-      
+    	Result result = greedySolver.solve(instance, SolveContext.unlimited());
+    	return new ResourceOrder(result.schedule) ; 
+    }
+
+    /** Improves the given order in place by moving to its best neighbor until no neighbor is better.
+     * When the method returns, the evaluator holds the final order.
+     *
+     * Iterations and evaluated neighbors are counted in the context.
+     *
+     * @param record whether the initial makespan and each improvement are recorded in the context
+     * @return true if a local optimum was reached, false if the search was interrupted by the context. */
+    boolean descend(ResourceOrder bestOrder, SwapEvaluator evaluator, SolveContext context, boolean record) {
+        int bestMakespan = evaluator.update(bestOrder) ; 
+        if (record) 
+        	context.record(0, bestMakespan) ; 
         
         boolean hasImproved = true ; 
-        while (hasImproved && (deadline - System.currentTimeMillis() >1 )) {
+        for (long iteration = 1 ; hasImproved && !context.shouldStop() ; iteration++) {
         	hasImproved = false; 
-        	List<Block> blocks = blocksOfCriticalPath(bestOrder);
-        	List<Swap> swaps = new ArrayList<DescentSolver.Swap>() ; 
-        	for (Block b : blocks) {
-        		swaps.addAll(neighbors(b)) ;
+        	List<Swap> swaps = neighborsOfCriticalPath(evaluator) ; 
+        	
+        	//estimate all neighbors, keeping those that might be better than the current solution
+        	//(each one packed with its index in `swaps` as estimate << 32 | index)
+        	long[] candidates = evaluator.candidates ; 
+        	int numCandidates = 0 ; 
+        	int bestEstimate = bestMakespan ; 
+        	for (int i = 0 ; i < swaps.size() ; i++) {
+        		//neighbors worse than the best one so far are only kept if their evaluation is a lower bound below
+        		//the current makespan
+        		int estimate = evaluator.evaluate(swaps.get(i), bestEstimate - 1) ; 
+        		if (estimate < bestMakespan) {
+        			candidates[numCandidates++] = ((long) estimate << 32) | i ; 
+        			bestEstimate = Math.min(bestEstimate, estimate) ; 
+        		}
         	}
+        	context.countIteration() ; 
+        	context.countEvaluations(swaps.size()) ; 
         	
-        	int bestMakespan = bestOrder.toSchedule().makespan() ; 
-        	for (Swap s : swaps) {
-        		ResourceOrder currentNeighboor = bestOrder.copy() ; 
-        		s.applyOn(currentNeighboor);
-        		if (currentNeighboor.toSchedule().makespan() < bestMakespan) {
-        			bestMakespan = currentNeighboor.toSchedule().makespan() ; 
-        			bestOrder = currentNeighboor.copy() ; 
+        	//an estimation might be too optimistic : try the neighbors by increasing estimate (the first one of the
+        	//list in case of a tie) and move to the first one that is really better. The search only stops when none
+        	//is, so that a wrong estimation does not end it early. Neighbors are checked with the cache of the
+        	//evaluator, and otherwise decoded only until they are known not to be better.
+        	Arrays.sort(candidates, 0, numCandidates) ; 
+        	for (int c = 0 ; c < numCandidates && !hasImproved ; c++) {
+        		Swap swap = swaps.get((int) candidates[c]) ; 
+        		if (evaluator.evaluateExactly(swap, bestMakespan - 1) < bestMakespan) {
+        			swap.applyOn(bestOrder);
+        			bestMakespan = evaluator.update(bestOrder) ; 
         			hasImproved = true; 
+        			if (record) 
+        				context.record(iteration, bestMakespan) ; 
         		}
         	}
 
         }
-        ExitCause exit = (hasImproved ? ExitCause.Timeout : ExitCause.Blocked) ; 
-        return new Result(instance, bestOrder.toSchedule(), exit); 
+        return !hasImproved ; 
     }
 
-    /** Returns a list of all blocks of the critical path. */
+    /** Randomly moves the order away from its current position by applying `steps` random swaps
+     * of the Nowicki and Smutnicki neighborhood (such swaps never introduce a cycle).
+     * @return the number of swaps applied, lower than `steps` if an order without any neighbor was reached */
+    int perturb(ResourceOrder order, SwapEvaluator evaluator, int steps, Random random) {
+    	for (int k = 0; k < steps; k++) {
+    		evaluator.update(order) ; 
+    		int numBlocks = evaluator.criticalBlocks() ; 
+    		if (numBlocks == 0) 
+    			return k ; 
+    		//a random block, then a random swap among its neighbors, as listed by neighbors(Block) : the swap at the
+    		//end of the block, then the one at its start (the same one for a block of two tasks)
+    		int[] ranges = evaluator.blocks() ; 
+    		int b = random.nextInt(numBlocks) ; 
+    		int machine = ranges[3*b] ; 
+    		int firstTask = ranges[3*b+1] ; 
+    		int lastTask = ranges[3*b+2] ; 
+    		int numSwaps = (firstTask+1 == lastTask ? 1 : 2) ; 
+    		Metrics.add(Metrics.Counter.NeighborsGenerated, numSwaps) ; 
+    		Swap swap = (random.nextInt(numSwaps) == 0 ? evaluator.swap(machine, lastTask-1) : evaluator.swap(machine, firstTask)) ; 
+    		swap.applyOn(order);
+    	}
+    	return steps ; 
+    }
+
+    /** Returns a list of all blocks of the critical path (empty if the order contains a cycle). */
     public List<Block> blocksOfCriticalPath(ResourceOrder order) {
-    	Schedule sched = order.toSchedule() ;
-    	List<Task> path = sched.criticalPath() ; 
-    	List<Block> blocks = new ArrayList<DescentSolver.Block>();
-    	
-    	int currentMachine = order.instance.machine(path.get(0)) ; 
-    	int startCurrentBlock = 0;  
-    	for (Task currentTask : path) {
-    		int index = path.indexOf(currentTask) ; 
-    		if (order.instance.machine(currentTask) != currentMachine || index == path.size()-1) {
-    			int endCurrentBlock ; 
-    			if (index == path.size()-1) {
-    				endCurrentBlock = index ; 
-    				if (order.instance.machine(currentTask) != currentMachine) {
-    					endCurrentBlock = index-1; 
-    				}
-    			} else {
-    				endCurrentBlock = index-1; 
-    			}
-    		
-    			if (endCurrentBlock > startCurrentBlock) {
-    				List<Task> taskOfMachine = Arrays.asList(order.tasksByMachine[currentMachine]) ; 
-    				blocks.add(new Block(currentMachine, taskOfMachine.indexOf(path.get(startCurrentBlock)), taskOfMachine.indexOf(path.get(endCurrentBlock)))) ; 
-    			}
-    			startCurrentBlock = index;
-    			currentMachine = order.instance.machine(currentTask) ; 
-    		}
+    	int numTasks = order.instance.numJobs * order.instance.numTasks ; 
+    	int[] startTimes = new int[numTasks] ; 
+    	if (order.decode(startTimes, new int[numTasks]) < 0) 
+    		return new ArrayList<DescentSolver.Block>() ; 
+    	int[] ranges = new int[3 * (numTasks / 2)] ; 
+    	return toBlocks(ranges, order.criticalBlocks(startTimes, ranges)) ; 
+    }
+
+    /** Returns a list of all blocks of the critical path of the order currently held by the evaluator. */
+    List<Block> blocksOfCriticalPath(SwapEvaluator evaluator) {
+    	int numBlocks = evaluator.criticalBlocks() ; 
+    	return toBlocks(evaluator.blocks(), numBlocks) ; 
+    }
+
+    /** Blocks given as (machine, firstTask, lastTask) triples, as found by ResourceOrder.criticalBlocks. */
+    private static List<Block> toBlocks(int[] ranges, int numBlocks) {
+    	List<Block> blocks = new ArrayList<DescentSolver.Block>(numBlocks);
+    	for (int b = 0; b < numBlocks; b++) {
+    		blocks.add(new Block(ranges[3*b], ranges[3*b+1], ranges[3*b+2])) ; 
     	}
         return blocks;
     }
 
+    /** Returns the swaps of the Nowicki and Smutnicki neighborhood of all blocks of the critical path of the order
+     * currently held by the evaluator, in the order given by neighbors(Block) for each block.
+     * The list and its swaps are buffers of the evaluator, valid until the next call : nothing is allocated. */
+    List<Swap> neighborsOfCriticalPath(SwapEvaluator evaluator) {
+    	int numBlocks = evaluator.criticalBlocks() ; 
+    	int[] ranges = evaluator.blocks() ; 
+    	List<Swap> swaps = evaluator.neighbors ; 
+    	swaps.clear() ; 
+    	for (int b = 0; b < numBlocks; b++) {
+    		int machine = ranges[3*b] ; 
+    		int firstTask = ranges[3*b+1] ; 
+    		int lastTask = ranges[3*b+2] ; 
+    		if (firstTask+1 == lastTask) {
+    			swaps.add(evaluator.swap(machine, firstTask)) ; 
+    		} else {
+    			swaps.add(evaluator.swap(machine, lastTask-1)) ; 
+    			swaps.add(evaluator.swap(machine, firstTask)) ; 
+    		}
+    	}
+    	Metrics.add(Metrics.Counter.NeighborsGenerated, swaps.size()) ; 
+    	return swaps ; 
+    }
+
     /** For a given block, return the possible swaps for the Nowicki and Smutnicki neighborhood */
     public List<Swap> neighbors(Block block) {
     	List<Swap> listOfSwaps = new ArrayList<DescentSolver.Swap>(); 
@@ -161,6 +273,7 @@ public class DescentSolver implements Solver {
     		listOfSwaps.add(new Swap(block.machine, block.lastTask-1, block.lastTask));
     		listOfSwaps.add(new Swap(block.machine, block.firstTask, block.firstTask+1));
     	}
+    	Metrics.add(Metrics.Counter.NeighborsGenerated, listOfSwaps.size()) ; 
         return listOfSwaps; 
     }
 
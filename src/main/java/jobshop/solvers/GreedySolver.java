@@ -2,141 +2,176 @@ package jobshop.solvers;
 
 import jobshop.Instance;
 import jobshop.Result;
+import jobshop.Schedule;
+import jobshop.SolveContext;
 import jobshop.Solver;
 import jobshop.encodings.ResourceOrder;
-import jobshop.encodings.Task;
 
 public class GreedySolver implements Solver {
-	//priority rule to use, 1 for SPT 0 for LRPT
-	GreedyPriority priority ; 
-	int[] nextTask ; 
-
-
-	int[] endJobs ; 
-	int[] releaseTimeOfMachine ; 
-	int EST ; 
+	//priority rule to use
+	final GreedyPriority priority ;
 
 	public GreedySolver(GreedyPriority priority) {
-		// TODO Auto-generated constructor stub
-		this.priority = priority ; 
-
+		this.priority = priority ;
 	}
 
 	@Override
 	public Result solve(Instance instance, long deadline) {
-		// Initialization : les tâches réalisables sont les premières tâches de chaque job
-		nextTask = new int[instance.numJobs] ; 
-		endJobs = new int[instance.numJobs] ; 
-		releaseTimeOfMachine = new int[instance.numMachines] ; 
-		ResourceOrder sol = new ResourceOrder(instance) ; 
-
-		boolean hasRealisable = true ; 
-		while (hasRealisable) {
-			//find the task with the SPT or the LRPT
-			Task taskPrio = new Task(0, 0) ;
-			/*pour chaque job quand il fini
-			pour chaque machine quand elle est dispo*/
-			switch (this.priority) {
-			case EST_SPT : 
-				Task[] selectedTask = tasksEST(instance) ; 
-				int EST_SPT = Integer.MAX_VALUE ; 
-				for(Task currentTask : selectedTask){
-					if (currentTask != null) {
-						if(instance.duration(currentTask) < EST_SPT){
-							EST_SPT = instance.duration(currentTask);
-							taskPrio = currentTask ; 
-
-						}
-					}
-				}
-				break;
-			case EST_LRPT:
-				Task[] selectedTasks = tasksEST(instance) ; 
-				int EST_LRPT = 0 ; 
-				for (Task currentTask : selectedTasks) {
-					if (currentTask != null) {
-						int jobDuration = 0;
-						for(int t = currentTask.task; t<instance.numTasks; t++) {
-							jobDuration += instance.duration(currentTask.job, t) ;
-						}
-						if (jobDuration > EST_LRPT) {
-							EST_LRPT = jobDuration; 
-							taskPrio = currentTask ;
-						}
-					}
-				}
-				break; 
-			case SPT : 
-				int SPT = Integer.MAX_VALUE ; 
-				for(int i = 0;i<instance.numJobs;i++){
-					if (nextTask[i] != instance.numTasks) {
-						if(instance.duration(i, nextTask[i]) < SPT){
-							SPT = instance.duration(i, nextTask[i]);
-							taskPrio = new Task(i, nextTask[i]) ; 
-						}
-					}
+		return solve(instance, SolveContext.until(deadline)) ; 
+	}
+
+	@Override
+	public Result solve(Instance instance, SolveContext context) {
+		context.start(instance) ;
+		// all the state of the construction is local to this call, so that a solver can be used by several threads
+		Dispatch dispatch = new Dispatch(instance, priority) ;
+		ResourceOrder sol = dispatch.run() ;
+		Schedule schedule = sol.toSchedule() ;
+		context.record(0, schedule.makespan()) ;
+		Result.ExitCause exit = (context.isProvedOptimal() ? Result.ExitCause.ProvedOptimal : Result.ExitCause.Blocked) ;
+		return new Result(instance, schedule, exit, context.trace());
+	}
+
+	/** State of one greedy construction.
+	 *
+	 * The next task of each job (if any) is kept in a binary heap of jobs ordered by
+	 *  - the earliest start time of the task (EST rules only),
+	 *  - then the priority rule (shortest task for SPT, longest remaining work for LRPT),
+	 *  - then the job number.
+	 *
+	 * Earliest start times only increase when a machine is used, so instead of updating all jobs waiting for
+	 * a machine, the heap may contain outdated (lower) start times : the job on top of the heap is re-evaluated
+	 * before being selected and pushed back in the heap if its start time changed. */
+	private static final class Dispatch {
+		final Instance instance ;
+		final GreedyPriority priority ;
+		final boolean useEST ;
+
+		// for each job, index of the next task to schedule
+		final int[] nextTask ;
+		// for each job, end time of its last scheduled task
+		final int[] endJobs ;
+		// for each machine, end time of its last scheduled task
+		final int[] releaseTimeOfMachine ;
+
+		// binary heap of jobs that still have tasks to schedule
+		final int[] heap ;
+		int size = 0 ;
+		// for each job in the heap, its earliest start time (possibly outdated) and its priority (lower is better)
+		final int[] est ;
+		final int[] key ;
+
+		Dispatch(Instance instance, GreedyPriority priority) {
+			this.instance = instance ;
+			this.priority = priority ;
+			this.useEST = priority == GreedyPriority.EST_SPT || priority == GreedyPriority.EST_LRPT ;
+			nextTask = new int[instance.numJobs] ;
+			endJobs = new int[instance.numJobs] ;
+			releaseTimeOfMachine = new int[instance.numMachines] ;
+			heap = new int[instance.numJobs] ;
+			est = new int[instance.numJobs] ;
+			key = new int[instance.numJobs] ;
+		}
+
+		ResourceOrder run() {
+			ResourceOrder sol = new ResourceOrder(instance) ;
+			// Initialization : les tâches réalisables sont les premières tâches de chaque job
+			for (int j = 0; j<instance.numJobs; j++) {
+				push(j) ;
+			}
+
+			while (size > 0) {
+				//find the job whose next task has the highest priority
+				int job = heap[0] ;
+				int currentEST = earliestStart(job) ;
+				if (useEST && currentEST != est[job]) {
+					// outdated start time : update it and look at the top of the heap again
+					est[job] = currentEST ;
+					siftDown(0) ;
+					continue ;
 				}
-				break; 
-			case LRPT:
-				int LRPT = 0 ; 
-				for (int i = 0; i<instance.numJobs; i++) {
-					int jobDuration = 0;
-					for(int j = nextTask[i]; j<instance.numTasks; j++) {
-						jobDuration += instance.duration(i, j) ;
-					}
-					if (jobDuration > LRPT) {
-						LRPT = jobDuration; 
-						taskPrio = new Task(i, nextTask[i]) ;
-					}
+				pop() ;
+
+				//update solution
+				int task = nextTask[job] ;
+				int machine = instance.machine(job, task) ;
+				sol.setTask(machine, sol.nextFreeSlot[machine], instance.taskId(job, task));
+				sol.nextFreeSlot[machine]++;
+				endJobs[job] = currentEST + instance.duration(job, task) ;
+				releaseTimeOfMachine[machine] = endJobs[job] ;
+
+				//the next task of the job becomes realisable
+				nextTask[job]++;
+				if (nextTask[job] < instance.numTasks) {
+					push(job) ;
 				}
-				break; 
 			}
+			return sol ;
+		}
 
-			//update solution
-			int machine = instance.machine(taskPrio) ;
-			sol.tasksByMachine[machine][sol.nextFreeSlot[machine]] = taskPrio;
-			sol.nextFreeSlot[machine]++; 
-			endJobs[taskPrio.job] = instance.duration(taskPrio) + this.EST ; 
-			releaseTimeOfMachine[machine] = endJobs[taskPrio.job] ; 
-
+		/** Earliest start time of the next task of the job given the tasks scheduled so far. */
+		int earliestStart(int job) {
+			return Math.max(endJobs[job], releaseTimeOfMachine[instance.machine(job, nextTask[job])]) ;
+		}
 
-			//update realisable[]
+		/** Inserts the job in the heap, with the priority of its next task. */
+		void push(int job) {
+			est[job] = useEST ? earliestStart(job) : 0 ;
+			switch (priority) {
+			case SPT :
+			case EST_SPT :
+				key[job] = instance.duration(job, nextTask[job]) ;
+				break ;
+			case LRPT :
+			case EST_LRPT :
+				key[job] = - instance.remainingWork(job, nextTask[job]) ;
+				break ;
+			}
+			heap[size] = job ;
+			size++ ;
+			siftUp(size-1) ;
+		}
 
-			nextTask[taskPrio.job]++; 
+		/** Removes the job on top of the heap. */
+		void pop() {
+			size-- ;
+			heap[0] = heap[size] ;
+			siftDown(0) ;
+		}
 
-			//check if there is still tasks to be done for each job
-			hasRealisable = false; 
-			for (int i = 0; i<instance.numJobs; i++) {
-				if (nextTask[i] != instance.numTasks)
-					hasRealisable = true; 
-			}
+		/** True if job j1 should be scheduled before job j2. */
+		boolean before(int j1, int j2) {
+			if (est[j1] != est[j2])
+				return est[j1] < est[j2] ;
+			if (key[j1] != key[j2])
+				return key[j1] < key[j2] ;
+			return j1 < j2 ;
 		}
-		return new Result(instance, sol.toSchedule(), Result.ExitCause.Blocked);
-	}
 
-	private Task[] tasksEST(Instance instance) {
-		//calculation of est
-		int minEST = Integer.MAX_VALUE ; 
-		for (int j = 0; j<instance.numJobs; j++) {
-			if (nextTask[j] != instance.numTasks) {
-				int currentST = Math.max(endJobs[j], releaseTimeOfMachine[instance.machine(j, nextTask[j])]) ;
-				if (currentST <= minEST) {
-					minEST = currentST ; 
-				}
+		void siftUp(int i) {
+			int job = heap[i] ;
+			while (i > 0) {
+				int parent = (i-1) / 2 ;
+				if (!before(job, heap[parent]))
+					break ;
+				heap[i] = heap[parent] ;
+				i = parent ;
 			}
+			heap[i] = job ;
 		}
-		this.EST = minEST ; 
-		//selection of all tasks with EST value
-		Task[] tasksEST = new Task[instance.numJobs] ;
-		for (int j = 0; j<instance.numJobs; j++) {
-			if (nextTask[j] != instance.numTasks) {
-				int currentEST = Math.max(endJobs[j], releaseTimeOfMachine[instance.machine(j, nextTask[j])]) ;
-				if (currentEST == minEST) {
-					tasksEST[j] = new Task(j, nextTask[j]); 
-				}
+
+		void siftDown(int i) {
+			int job = heap[i] ;
+			while (2*i+1 < size) {
+				int child = 2*i+1 ;
+				if (child+1 < size && before(heap[child+1], heap[child]))
+					child++ ;
+				if (!before(heap[child], job))
+					break ;
+				heap[i] = heap[child] ;
+				i = child ;
 			}
+			heap[i] = job ;
 		}
-
-		return tasksEST; 
 	}
 }
@@ -0,0 +1,152 @@
+package jobshop.solvers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import jobshop.Instance;
+import jobshop.Result;
+import jobshop.Result.ExitCause;
+import jobshop.SolveContext;
+import jobshop.encodings.ResourceOrder;
+
+/**
+ * Runs several taboo searches (islands) in parallel until the context stops them, periodically exchanging their best
+ * solutions.
+ *
+ * Islands differ by their starting point and by their taboo tenure (see tenureOf). They are arranged in a ring : every
+ * `migrationInterval` iterations, an island publishes its best solution in its own slot of a shared array and
+ * continues from the solution in the slot of the next island if it is better than its own best one.
+ *
+ * An island whose neighbors are all taboo is restarted from a random perturbation of its best solution. If its best
+ * solution has no neighbor at all, it is restarted from the best solution published by the other islands instead, and
+ * stops if there is no better one : it cannot make any progress anymore.
+ */
+public class IslandTabooSolver extends TabooSolver {
+
+    /** A solution published by an island. Never modified once published. */
+    private static final class Elite {
+        final ResourceOrder order;
+        final int makespan;
+
+        Elite(ResourceOrder order, int makespan) {
+            this.order = order;
+            this.makespan = makespan;
+        }
+    }
+
+    /** Number of islands, each one running on its own thread. */
+    private final int numIslands;
+
+    /** Number of iterations of an island between two exchanges with its neighbor. */
+    private final int migrationInterval;
+
+    public IslandTabooSolver(int numIslands, int dureeTaboo, int migrationInterval) {
+        this(numIslands, dureeTaboo, migrationInterval, SwapEvaluator.Mode.Approximate);
+    }
+
+    public IslandTabooSolver(int numIslands, int dureeTaboo, int migrationInterval, SwapEvaluator.Mode evaluationMode) {
+        super(Integer.MAX_VALUE, dureeTaboo, evaluationMode);
+        if(numIslands < 1)
+            throw new IllegalArgumentException("Invalid number of islands " + numIslands + ", must be at least 1");
+        if(dureeTaboo < 0)
+            throw new IllegalArgumentException("Invalid taboo tenure " + dureeTaboo + ", must be at least 0");
+        if(migrationInterval < 1)
+            throw new IllegalArgumentException("Invalid migration interval " + migrationInterval + ", must be at least 1");
+        this.numIslands = numIslands;
+        this.migrationInterval = migrationInterval;
+    }
+
+    @Override
+    public Result solve(Instance instance, SolveContext context) {
+        context.start(instance);
+        ResourceOrder start = initialOrder(instance);
+        AtomicReferenceArray<Elite> elites = new AtomicReferenceArray<>(numIslands);
+        // the context is shared by all islands : its trace follows the best solution of all of them
+
+        ForkJoinPool pool = new ForkJoinPool(numIslands);
+        try {
+            List<ForkJoinTask<?>> islands = new ArrayList<>();
+            for(int i = 0 ; i < numIslands ; i++) {
+                final int island = i;
+                islands.add(pool.submit(() -> runIsland(island, start, elites, context)));
+            }
+            for(ForkJoinTask<?> island : islands) {
+                island.join();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        Elite best = bestElite(elites);
+        return new Result(instance, best.order.toSchedule(), context.exitCause(ExitCause.Timeout), context.trace());
+    }
+
+    /** Best solution published so far by all islands, or null if none has published yet. */
+    private static Elite bestElite(AtomicReferenceArray<Elite> elites) {
+        Elite best = null;
+        for(int i = 0 ; i < elites.length() ; i++) {
+            Elite elite = elites.get(i);
+            if(elite != null && (best == null || elite.makespan < best.makespan))
+                best = elite;
+        }
+        return best;
+    }
+
+    /** Taboo tenure of the given island : islands cycle through a few tenures around the configured one. */
+    int tenureOf(int island) {
+        return dureeTaboo + 2 * (island % 4);
+    }
+
+    /** Body of an island : performs a taboo search until the context stops it, migrating solutions with its neighbor.
+     * Improvements are recorded in the context with the iteration of the island. */
+    private void runIsland(int island, ResourceOrder start, AtomicReferenceArray<Elite> elites, SolveContext context) {
+        Instance instance = start.instance;
+        // one seed per island : a run is reproducible for a given number of islands (up to the deadline and migrations)
+        Random random = new Random(island);
+        try (NeighborhoodEvaluator neighborhood = new NeighborhoodEvaluator(instance, evaluationMode, 1)) {
+            ResourceOrder order = start.copy();
+            if(island != 0)
+                perturb(order, neighborhood.evaluator, 1 + random.nextInt(instance.numJobs), random);
+            Trajectory trajectory = new Trajectory(order, tenureOf(island), neighborhood, context);
+
+            // the best solution of the island is always published, so that the result can be read from `elites`
+            elites.set(island, new Elite(trajectory.bestOrder.copy(), trajectory.bestMakespan));
+            int published = trajectory.bestMakespan;
+
+            while(!context.shouldStop()) {
+                if(!trajectory.step()) {
+                    // all neighbors are taboo : start again from somewhere close to the best solution
+                    order.copyFrom(trajectory.bestOrder);
+                    if(perturb(order, neighborhood.evaluator, 1 + random.nextInt(instance.numJobs), random) > 0) {
+                        trajectory.moveTo(order);
+                    } else {
+                        // the best solution has no neighbor : go on from a better solution of another island, if any
+                        Elite elite = bestElite(elites);
+                        if(elite.makespan >= trajectory.bestMakespan)
+                            break;
+                        trajectory.moveTo(elite.order);
+                    }
+                }
+
+                if(trajectory.k % migrationInterval == 0) {
+                    if(trajectory.bestMakespan < published) {
+                        // the island keeps modifying its orders : publish a snapshot
+                        elites.set(island, new Elite(trajectory.bestOrder.copy(), trajectory.bestMakespan));
+                        published = trajectory.bestMakespan;
+                    }
+                    Elite immigrant = elites.get((island + 1) % numIslands);
+                    if(immigrant != null && immigrant.makespan < trajectory.bestMakespan)
+                        trajectory.moveTo(immigrant.order);
+                }
+            }
+
+            if(trajectory.bestMakespan < published)
+                elites.set(island, new Elite(trajectory.bestOrder.copy(), trajectory.bestMakespan));
+            context.countCacheLookups(neighborhood.cacheHits(), neighborhood.cacheMisses());
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package jobshop.solvers;
+
+import java.util.Arrays;
+
+import jobshop.Metrics;
+import jobshop.encodings.ResourceOrder;
+
+/**
+ * Bounded cache of the makespans of already evaluated resource orders, indexed by their Zobrist hash
+ * (see ResourceOrder.zobristHash).
+ *
+ * The cache is direct-mapped : a hash can only be stored in one slot (given by its lowest bits), and storing it evicts
+ * whatever was there. Lookups and insertions are thus O(1) and the memory used is fixed, 12 bytes per slot.
+ * Two different orders with the same 64 bits hash would be confused, which is unlikely enough to be ignored.
+ *
+ * A cache is not thread-safe. Hits and misses are counted (see `hits`, `misses` and the CacheHits / CacheMisses
+ * metrics) to help choosing its size.
+ */
+public class MakespanCache {
+
+    /** Value returned by `get` when the order is not in the cache. */
+    public static final int MISSING = -1;
+
+    private static final long EMPTY = 0L;
+
+    private final long[] hashes;
+    private final int[] makespans;
+    private final int mask;
+
+    private long hits = 0;
+    private long misses = 0;
+
+    /** Creates a cache with at least the given number of slots (rounded up to a power of two). */
+    public MakespanCache(int size) {
+        int capacity = Integer.highestOneBit(Math.max(size - 1, 1)) << 1;
+        this.hashes = new long[capacity];
+        this.makespans = new int[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /** Makespan stored for the order, or MISSING. */
+    public int get(ResourceOrder order) {
+        return get(order.zobristHash());
+    }
+
+    /** Makespan stored for the order with the given Zobrist hash, or MISSING. */
+    public int get(long zobristHash) {
+        long hash = key(zobristHash);
+        int slot = (int) hash & mask;
+        if(hashes[slot] == hash) {
+            hits++;
+            Metrics.increment(Metrics.Counter.CacheHits);
+            return makespans[slot];
+        }
+        misses++;
+        Metrics.increment(Metrics.Counter.CacheMisses);
+        return MISSING;
+    }
+
+    /** Stores the makespan of the order, evicting the order previously stored in its slot if any. */
+    public void put(ResourceOrder order, int makespan) {
+        put(order.zobristHash(), makespan);
+    }
+
+    /** Stores the makespan of the order with the given Zobrist hash, evicting the order previously stored in its slot
+     * if any. */
+    public void put(long zobristHash, int makespan) {
+        long hash = key(zobristHash);
+        int slot = (int) hash & mask;
+        hashes[slot] = hash;
+        makespans[slot] = makespan;
+    }
+
+    /** Removes all orders from the cache. */
+    public void clear() {
+        Arrays.fill(hashes, EMPTY);
+    }
+
+    /** Number of lookups that found the order. */
+    public long hits() {
+        return hits;
+    }
+
+    /** Number of lookups that did not find the order. */
+    public long misses() {
+        return misses;
+    }
+
+    /** Key of an order in the cache : its hash, unless it is EMPTY. */
+    private static long key(long hash) {
+        return hash == EMPTY ? 1 : hash;
+    }
+}
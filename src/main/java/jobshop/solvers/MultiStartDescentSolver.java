@@ -0,0 +1,116 @@
+package jobshop.solvers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicReference;
+
+import jobshop.Instance;
+import jobshop.Result;
+import jobshop.Result.ExitCause;
+import jobshop.SolveContext;
+import jobshop.encodings.ResourceOrder;
+
+/**
+ * Runs independent descents in parallel until the context stops them.
+ *
+ * Each worker thread repeatedly starts from the greedy solution, moves it away with a random number of random
+ * swaps (except for the very first descent of the first worker, which starts from the greedy solution itself),
+ * and performs a descent from there. The best solution found by all workers is kept in a lock-free holder.
+ */
+public class MultiStartDescentSolver extends DescentSolver {
+
+    /** A solution found by a worker. Never modified once published. */
+    private static final class Incumbent {
+        final ResourceOrder order;
+        final int makespan;
+
+        Incumbent(ResourceOrder order, int makespan) {
+            this.order = order;
+            this.makespan = makespan;
+        }
+    }
+
+    /** Number of worker threads running descents. */
+    private final int numThreads;
+
+    public MultiStartDescentSolver(int numThreads) {
+        this(numThreads, SwapEvaluator.Mode.Approximate);
+    }
+
+    public MultiStartDescentSolver(int numThreads, SwapEvaluator.Mode evaluationMode) {
+        super(evaluationMode);
+        this.numThreads = numThreads;
+    }
+
+    @Override
+    public Result solve(Instance instance, SolveContext context) {
+        context.start(instance);
+        ResourceOrder start = initialOrder(instance);
+        // one evaluator per worker, the first one also gives the makespan of the start solution
+        SwapEvaluator[] evaluators = new SwapEvaluator[numThreads];
+        for(int w = 0 ; w < numThreads ; w++) {
+            evaluators[w] = new SwapEvaluator(instance, evaluationMode);
+        }
+        AtomicReference<Incumbent> best = new AtomicReference<>(new Incumbent(start, evaluators[0].update(start)));
+        context.record(0, best.get().makespan);
+
+        ForkJoinPool pool = new ForkJoinPool(numThreads);
+        try {
+            List<ForkJoinTask<?>> workers = new ArrayList<>();
+            for(int w = 0 ; w < numThreads ; w++) {
+                final int worker = w;
+                workers.add(pool.submit(() -> runDescents(worker, start, evaluators[worker], best, context)));
+            }
+            for(ForkJoinTask<?> worker : workers) {
+                worker.join();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        return new Result(instance, best.get().order.toSchedule(), context.exitCause(ExitCause.Timeout), context.trace());
+    }
+
+    /** Body of a worker : performs descents from perturbed versions of `start` until the context stops it.
+     * Improvements of the best solution are recorded in the context, with the number of descents of the worker
+     * as iteration. */
+    private void runDescents(int worker, ResourceOrder start, SwapEvaluator evaluator, AtomicReference<Incumbent> best,
+                             SolveContext context) {
+        Instance instance = start.instance;
+        // one seed per worker : a run is reproducible for a given number of threads (up to the deadline)
+        Random random = new Random(worker);
+        ResourceOrder order = new ResourceOrder(instance);
+
+        boolean first = worker == 0;
+        for(long descents = 1 ; !context.shouldStop() ; descents++) {
+            order.copyFrom(start);
+            if(!first)
+                perturb(order, evaluator, 1 + random.nextInt(instance.numJobs), random);
+            first = false;
+
+            descend(order, evaluator, context, false);
+            if(offer(best, order, evaluator.makespan()))
+                context.record(descents, evaluator.makespan());
+        }
+        context.countCacheLookups(evaluator.cacheHits(), evaluator.cacheMisses());
+    }
+
+    /** Publishes the order as the new best solution if it is better than the current one.
+     * @return true if the order was published */
+    private static boolean offer(AtomicReference<Incumbent> best, ResourceOrder order, int makespan) {
+        Incumbent current = best.get();
+        if(makespan >= current.makespan)
+            return false;
+        // the worker keeps modifying its order : publish a snapshot
+        Incumbent candidate = new Incumbent(order.copy(), makespan);
+        while(makespan < current.makespan) {
+            if(best.compareAndSet(current, candidate))
+                return true;
+            current = best.get();
+        }
+        return false;
+    }
+}
@@ -0,0 +1,175 @@
+package jobshop.solvers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import jobshop.Instance;
+import jobshop.encodings.ResourceOrder;
+
+/**
+ * Evaluates a list of candidate swaps on a current order and selects the best one, possibly in parallel.
+ *
+ * In parallel mode, candidates are split in contiguous chunks, one per thread. Each chunk is evaluated on a
+ * private copy of the current order with its own SwapEvaluator, so that swaps can be applied and reverted
+ * concurrently. A copy is only updated when the current order differs from it (compared by Zobrist hash), e.g. not
+ * when the current order was set again without any change. The best candidate is the one with the lowest makespan
+ * and, among those, the first in the list : the result does not depend on the number of threads.
+ *
+ * Parallelism only pays off when evaluations are expensive : a list is evaluated sequentially unless its estimated
+ * cost (number of candidates times the number of tasks visited by an evaluation) exceeds PARALLEL_THRESHOLD.
+ * In practice, this means parallel evaluation is only used for exact evaluations on large enough instances.
+ */
+class NeighborhoodEvaluator implements AutoCloseable {
+
+    /** Estimated number of task visits under which a list of candidates is evaluated sequentially. */
+    static final int PARALLEL_THRESHOLD = 50_000;
+
+    /** Evaluator of the current order. */
+    final SwapEvaluator evaluator;
+
+    private final Instance instance;
+
+    /** Pool running the evaluation of chunks, null if evaluation is always sequential. */
+    private final ForkJoinPool pool;
+
+    // for each chunk, its copy of the current order and the evaluator of this copy
+    private final ResourceOrder[] orders;
+    private final SwapEvaluator[] evaluators;
+    // for each chunk, whether its evaluator holds its copy (false until the first evaluation of the chunk)
+    private final boolean[] synced;
+
+    private ResourceOrder current;
+
+    // makespan of each candidate of the last evaluated list
+    private int[] values = new int[16];
+
+    NeighborhoodEvaluator(Instance instance, SwapEvaluator.Mode mode, int numThreads) {
+        this.instance = instance;
+        this.evaluator = new SwapEvaluator(instance, mode);
+        if(numThreads > 1) {
+            pool = new ForkJoinPool(numThreads);
+            orders = new ResourceOrder[numThreads];
+            evaluators = new SwapEvaluator[numThreads];
+            synced = new boolean[numThreads];
+            for(int c = 0 ; c < numThreads ; c++) {
+                orders[c] = new ResourceOrder(instance);
+                evaluators[c] = new SwapEvaluator(instance, mode);
+            }
+        } else {
+            pool = null;
+            orders = null;
+            evaluators = null;
+            synced = null;
+        }
+    }
+
+    /** Sets the current order (see SwapEvaluator.update). */
+    int update(ResourceOrder order) {
+        current = order;
+        return evaluator.update(order);
+    }
+
+    /** Evaluates all candidates on the current order.
+     * @return the index of the best candidate, or -1 if the list is empty. */
+    int best(List<DescentSolver.Swap> candidates) {
+        int size = candidates.size();
+        if(values.length < size)
+            values = new int[Math.max(size, 2 * values.length)];
+
+        if(pool != null && estimatedCost(size) >= PARALLEL_THRESHOLD) {
+            evaluateInParallel(candidates);
+        } else {
+            evaluate(evaluator, candidates, 0, size);
+        }
+
+        // candidates whose makespan is Integer.MAX_VALUE (cycles) are never selected
+        int best = -1;
+        int bestValue = Integer.MAX_VALUE;
+        for(int i = 0 ; i < size ; i++) {
+            if(values[i] < bestValue) {
+                bestValue = values[i];
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /** Evaluates the candidates in [from, to) and stores their makespans in `values`.
+     * Since only the first best candidate matters, each candidate is evaluated with a cutoff just below the best
+     * makespan found so far in the range : the values of candidates that cannot be strictly better are only
+     * lower bounds, which never make them selected instead of the actual best candidate. */
+    private void evaluate(SwapEvaluator evaluator, List<DescentSolver.Swap> candidates, int from, int to) {
+        int best = Integer.MAX_VALUE;
+        for(int i = from ; i < to ; i++) {
+            values[i] = evaluator.evaluate(candidates.get(i), best - 1);
+            best = Math.min(best, values[i]);
+        }
+    }
+
+    /** Number of evaluations whose makespan was found in the cache, over all evaluators (see SwapEvaluator). */
+    long cacheHits() {
+        long hits = evaluator.cacheHits();
+        if(evaluators != null) {
+            for(SwapEvaluator e : evaluators)
+                hits += e.cacheHits();
+        }
+        return hits;
+    }
+
+    /** Number of evaluations whose makespan was not found in the cache, over all evaluators (see SwapEvaluator). */
+    long cacheMisses() {
+        long misses = evaluator.cacheMisses();
+        if(evaluators != null) {
+            for(SwapEvaluator e : evaluators)
+                misses += e.cacheMisses();
+        }
+        return misses;
+    }
+
+    private long estimatedCost(int numCandidates) {
+        long costOfOne = evaluator.mode == SwapEvaluator.Mode.Exact ? instance.numJobs * instance.numTasks : 1;
+        return numCandidates * costOfOne;
+    }
+
+    private void evaluateInParallel(List<DescentSolver.Swap> candidates) {
+        int numChunks = orders.length;
+        int size = candidates.size();
+        List<Callable<Void>> chunks = new ArrayList<>(numChunks);
+        for(int c = 0 ; c < numChunks ; c++) {
+            final int chunk = c;
+            final int from = c * size / numChunks;
+            final int to = (c+1) * size / numChunks;
+            if(from == to)
+                continue;
+            chunks.add(() -> {
+                if(!synced[chunk] || orders[chunk].zobristHash() != current.zobristHash()) {
+                    orders[chunk].copyFrom(current);
+                    evaluators[chunk].update(orders[chunk]);
+                    synced[chunk] = true;
+                }
+                evaluate(evaluators[chunk], candidates, from, to);
+                return null;
+            });
+        }
+        try {
+            for(Future<Void> result : pool.invokeAll(chunks)) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        if(pool != null)
+            pool.shutdown();
+    }
+}
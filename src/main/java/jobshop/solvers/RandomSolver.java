@@ -10,6 +10,12 @@ public class RandomSolver implements Solver {
 
     @Override
     public Result solve(Instance instance, long deadline) {
+        return solve(instance, SolveContext.until(deadline));
+    }
+
+    @Override
+    public Result solve(Instance instance, SolveContext context) {
+        context.start(instance);
         Random generator = new Random(0);
 
         JobNumbers sol = new JobNumbers(instance);
@@ -19,17 +25,27 @@ public class RandomSolver implements Solver {
                 sol.jobs[sol.nextToSet++] = j;
             }
         }
-        Schedule best = sol.toSchedule();
-        while(deadline - System.currentTimeMillis() > 1) {
+        // only the makespan of each shuffle is computed : the best one is kept to build its schedule at the end
+        JobNumbers best = new JobNumbers(instance);
+        System.arraycopy(sol.jobs, 0, best.jobs, 0, sol.jobs.length);
+        best.nextToSet = sol.nextToSet;
+        int bestMakespan = sol.evaluateMakespan();
+        context.record(0, bestMakespan);
+        for(long iteration = 1 ; !context.shouldStop() ; iteration++) {
             shuffleArray(sol.jobs, generator);
-            Schedule s = sol.toSchedule();
-            if(s.makespan() < best.makespan()) {
-                best = s;
+            // only solutions strictly better than the best one are of interest
+            int makespan = sol.evaluateMakespan(bestMakespan - 1);
+            context.countIteration();
+            context.countEvaluations(1);
+            if(makespan < bestMakespan) {
+                bestMakespan = makespan;
+                System.arraycopy(sol.jobs, 0, best.jobs, 0, sol.jobs.length);
+                context.record(iteration, bestMakespan);
             }
         }
 
 
-        return new Result(instance, best, Result.ExitCause.Timeout);
+        return new Result(instance, best.toSchedule(), context.exitCause(Result.ExitCause.Timeout), context.trace());
     }
 
     /** Simple Fisher–Yates array shuffling */
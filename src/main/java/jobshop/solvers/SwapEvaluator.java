@@ -0,0 +1,269 @@
+package jobshop.solvers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jobshop.Instance;
+import jobshop.Metrics;
+import jobshop.encodings.ResourceOrder;
+
+/**
+ * Evaluates the makespan of the neighbors of a resource order obtained by swapping two tasks of a machine.
+ *
+ * The evaluator first computes, for the current order, the head of each task (its earliest start time) and its
+ * tail (length of the longest path from the end of the task to the end of the schedule). The makespan of the current
+ * order is then max(head(t) + duration(t) + tail(t)) over all tasks.
+ *
+ * When swapping two consecutive tasks u and v of a machine (u before v), only the heads of u and v and their tails
+ * need to be updated :
+ *   head'(v) = max(end(jobPred(v)), end(machinePred(u)))
+ *   head'(u) = max(end(jobPred(u)), head'(v) + duration(v))
+ *   tail'(u) = max(tailEnd(jobSucc(u)), tailEnd(machineSucc(v)))
+ *   tail'(v) = max(tailEnd(jobSucc(v)), tail'(u) + duration(u))
+ * where tailEnd(t) = duration(t) + tail(t). The longest path going through u or v in the neighbor is then
+ * max(head'(v) + duration(v) + tail'(v), head'(u) + duration(u) + tail'(u)).
+ *
+ * This is the estimation proposed by Taillard : it is computed in O(1) but ignores the paths that do not go
+ * through u or v, hence it might underestimate the makespan of the neighbor.
+ *
+ * Exact makespans (of the orders given to `update` and of decoded neighbors) are kept in a cache indexed by Zobrist
+ * hash. Searches often come back to orders they already evaluated, e.g. when a taboo search cycles or when a descent
+ * looks at the order it just left : the exact makespan of such a neighbor is then found in the cache, in both modes,
+ * instead of being estimated or decoded again.
+ */
+public class SwapEvaluator {
+
+    public enum Mode {
+        /** The makespan of each neighbor is computed by decoding it entirely. */
+        Exact,
+        /** The makespan of each neighbor is estimated from the heads and tails of the current order. */
+        Approximate
+    }
+
+    public final Mode mode;
+
+    private final Instance instance;
+
+    /** Order on which swaps are evaluated. */
+    private ResourceOrder order;
+
+    /** Makespan of the current order */
+    private int makespan;
+
+    // for each task identifier, its head (start time) and tail in the current order
+    private final int[] heads;
+    private final int[] tails;
+
+    // tasks of the current order in topological order, as given by the decoder
+    private final int[] topologicalOrder;
+
+    // blocks of the critical path of the current order, as (machine, firstTask, lastTask) triples
+    private final int[] blocks;
+
+    // buffers used to decode neighbors in exact mode
+    private final int[] neighborHeads;
+    private final int[] neighborOrder;
+
+    // swaps of two consecutive tasks, created on first use : swaps[machine * numJobs + i] exchanges the tasks at
+    // indices i and i+1 of the machine
+    private final DescentSolver.Swap[] swaps;
+
+    /** Buffer of neighbors of the current order, filled by DescentSolver.neighborsOfCriticalPath. */
+    final List<DescentSolver.Swap> neighbors = new ArrayList<>();
+
+    /** Buffer of the candidate neighbors of a descent step (see DescentSolver.descend), one per neighbor at most. */
+    final long[] candidates;
+
+    /** Number of slots of the cache of decoded neighbors. */
+    static final int CACHE_SIZE = 1 << 16;
+
+    // exact makespans of the orders evaluated so far, created by the first lookup : an evaluator that is only used to
+    // decode an order and find its blocks never allocates it
+    private MakespanCache cache;
+
+    public SwapEvaluator(Instance instance, Mode mode) {
+        this.instance = instance;
+        this.mode = mode;
+        int numTasks = instance.numJobs * instance.numTasks;
+        this.heads = new int[numTasks];
+        this.tails = new int[numTasks];
+        this.topologicalOrder = new int[numTasks];
+        this.blocks = new int[3 * (numTasks / 2)];
+        this.neighborHeads = new int[numTasks];
+        this.neighborOrder = new int[numTasks];
+        this.swaps = new DescentSolver.Swap[instance.numMachines * instance.numJobs];
+        // a block of n tasks has at most two neighbors, and blocks do not share tasks
+        this.candidates = new long[numTasks];
+    }
+
+    /** Sets the order on which swaps are going to be evaluated and computes the heads and tails of its tasks.
+     * The order must not be modified while it is used for evaluations.
+     *
+     * @return the makespan of the order, or -1 if it contains a cycle.
+     */
+    public int update(ResourceOrder order) {
+        this.order = order;
+        this.makespan = order.decode(heads, topologicalOrder);
+        if(makespan < 0)
+            return makespan;
+        if(cache != null)
+            cache.put(order.zobristHash(), makespan);
+
+        // tails are computed in reverse topological order, so that the tails of both successors of a task are known
+        for(int i = topologicalOrder.length-1 ; i >= 0 ; i--) {
+            int id = topologicalOrder[i];
+            int task = instance.taskOf(id);
+            int position = order.positionOf(id);
+            int tail = 0;
+            if(task < instance.numTasks-1)
+                tail = tailEnd(id+1);
+            if(position < instance.numJobs-1)
+                tail = Math.max(tail, tailEnd(order.taskAt(instance.machine(id), position+1)));
+            tails[id] = tail;
+        }
+        return makespan;
+    }
+
+    /** Makespan of the current order. */
+    public int makespan() {
+        return makespan;
+    }
+
+    /** Start time of the given task in the current order. */
+    public int head(int taskId) {
+        return heads[taskId];
+    }
+
+    /** Length of the longest path from the end of the given task to the end of the schedule in the current order. */
+    public int tail(int taskId) {
+        return tails[taskId];
+    }
+
+    /** Identifies the blocks of a critical path of the current order (see ResourceOrder.criticalBlocks).
+     * The blocks are available in `blocks()` until the next call.
+     * @return the number of blocks */
+    public int criticalBlocks() {
+        return order.criticalBlocks(heads, blocks);
+    }
+
+    /** Blocks found by the last call to criticalBlocks() as (machine, firstTask, lastTask) triples. */
+    public int[] blocks() {
+        return blocks;
+    }
+
+    /** The swap of the tasks at indices i and i+1 of the machine. Swaps are shared by all calls, so that the
+     * neighborhood of an order can be built without any allocation. */
+    DescentSolver.Swap swap(int machine, int i) {
+        int index = machine * instance.numJobs + i;
+        DescentSolver.Swap swap = swaps[index];
+        if(swap == null) {
+            swap = new DescentSolver.Swap(machine, i, i+1);
+            swaps[index] = swap;
+        }
+        return swap;
+    }
+
+    /** Returns the makespan of the order that would result from applying the swap on the current order.
+     * In approximate mode, the result is an estimation (see class documentation) unless the neighbor is in the cache
+     * or the swapped tasks are not consecutive on their machine, in which case the neighbor is decoded. */
+    int evaluate(DescentSolver.Swap swap) {
+        return evaluate(swap, Integer.MAX_VALUE);
+    }
+
+    /** Same as evaluate(swap), except that when the neighbor is decoded, the decoding stops as soon as its makespan is
+     * known to be greater than the cutoff (see ResourceOrder.decode), in which case the result is only a lower bound
+     * greater than the cutoff. Estimations are never interrupted. */
+    int evaluate(DescentSolver.Swap swap, int cutoff) {
+        Metrics.increment(Metrics.Counter.NeighborEvaluations);
+        int first = Math.min(swap.t1, swap.t2);
+        int second = Math.max(swap.t1, swap.t2);
+        if(mode == Mode.Approximate && second == first + 1) {
+            int cached = cache().get(order.zobristHashAfterSwap(swap.machine, first, second));
+            return cached != MakespanCache.MISSING ? cached : estimate(swap.machine, first);
+        } else {
+            return decodeNeighbor(swap, cutoff);
+        }
+    }
+
+    /** Exact makespan of the order that would result from applying the swap on the current order, whatever the mode
+     * (e.g. to check an estimation before moving to the neighbor). The decoding stops as soon as the makespan is known
+     * to be greater than the cutoff, as in evaluate(swap, cutoff). */
+    int evaluateExactly(DescentSolver.Swap swap, int cutoff) {
+        return decodeNeighbor(swap, cutoff);
+    }
+
+    /** Number of evaluations whose makespan was found in the cache. */
+    public long cacheHits() {
+        return cache == null ? 0 : cache.hits();
+    }
+
+    /** Number of evaluations whose makespan was looked for in the cache but not found. */
+    public long cacheMisses() {
+        return cache == null ? 0 : cache.misses();
+    }
+
+    /** Cache of the evaluator, created on first use with the makespan of the current order. */
+    private MakespanCache cache() {
+        if(cache == null) {
+            cache = new MakespanCache(CACHE_SIZE);
+            cache.put(order.zobristHash(), makespan);
+        }
+        return cache;
+    }
+
+    /** Taillard's estimation of the makespan after swapping the tasks at index i and i+1 of the machine. */
+    private int estimate(int machine, int i) {
+        int u = order.taskAt(machine, i);
+        int v = order.taskAt(machine, i+1);
+
+        int headV = end(jobPred(v));
+        if(i > 0)
+            headV = Math.max(headV, end(order.taskAt(machine, i-1)));
+        int headU = Math.max(end(jobPred(u)), headV + instance.duration(v));
+
+        int tailU = tailEnd(jobSucc(u));
+        if(i+2 < instance.numJobs)
+            tailU = Math.max(tailU, tailEnd(order.taskAt(machine, i+2)));
+        int tailV = Math.max(tailEnd(jobSucc(v)), tailU + instance.duration(u));
+
+        return Math.max(headV + instance.duration(v) + tailV, headU + instance.duration(u) + tailU);
+    }
+
+    /** Exact makespan of the neighbor, computed by decoding it.
+     * The swap is temporarily applied on the current order and then reverted. */
+    private int decodeNeighbor(DescentSolver.Swap swap, int cutoff) {
+        MakespanCache cache = cache();
+        swap.applyOn(order);
+        int neighborMakespan = cache.get(order);
+        if(neighborMakespan == MakespanCache.MISSING) {
+            neighborMakespan = order.decode(neighborHeads, neighborOrder, cutoff);
+            if(neighborMakespan < 0)
+                neighborMakespan = Integer.MAX_VALUE;
+            // an interrupted decoding only gives a bound, which must not be mistaken for the makespan later on
+            if(neighborMakespan <= cutoff || neighborMakespan == Integer.MAX_VALUE)
+                cache.put(order, neighborMakespan);
+        }
+        swap.undoOn(order);
+        return neighborMakespan;
+    }
+
+    /** Predecessor of the task on its job, -1 if it is the first one. */
+    private int jobPred(int taskId) {
+        return instance.taskOf(taskId) == 0 ? -1 : taskId - 1;
+    }
+
+    /** Successor of the task on its job, -1 if it is the last one. */
+    private int jobSucc(int taskId) {
+        return instance.taskOf(taskId) == instance.numTasks-1 ? -1 : taskId + 1;
+    }
+
+    /** End time of the task in the current order (0 for a non-existing task). */
+    private int end(int taskId) {
+        return taskId < 0 ? 0 : heads[taskId] + instance.duration(taskId);
+    }
+
+    /** Length of the longest path from the start of the task to the end of the schedule (0 for a non-existing task). */
+    private int tailEnd(int taskId) {
+        return taskId < 0 ? 0 : instance.duration(taskId) + tails[taskId];
+    }
+}
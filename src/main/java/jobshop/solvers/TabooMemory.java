@@ -0,0 +1,106 @@
+package jobshop.solvers;
+
+import java.util.Arrays;
+
+/**
+ * Taboo status of swaps, stored as an attribute memory whose size only depends on the taboo tenure.
+ *
+ * After tasks t1 and t2 have been swapped (t1 was before t2 on their machine) at iteration k, putting t1 back before
+ * t2 is taboo until iteration k + tenure. Since a swap is made taboo at most once per iteration, at most `tenure`
+ * pairs of tasks are taboo at any time : instead of a matrix indexed by pairs of tasks, pairs are kept in a small
+ * open-addressing hash table (linear probing) along with the iteration at which they stop being taboo. The pairs added
+ * during the last `tenure` additions are remembered in a ring buffer so that older ones, which are no longer taboo,
+ * can be removed from the table as new ones are added.
+ */
+final class TabooMemory {
+
+    private static final long EMPTY = -1L;
+
+    private final int tenure;
+
+    // hash table : for each slot, the pair of tasks (see key) or EMPTY, and the first iteration at which it is not taboo
+    private final long[] keys;
+    private final int[] expirations;
+    private final int mask;
+
+    // last `tenure` pairs added, the next one overwriting the slot at index `added % tenure`
+    private final long[] recent;
+    private long added = 0;
+
+    TabooMemory(int tenure) {
+        this.tenure = Math.max(tenure, 0);
+        // at most `tenure` live pairs : keep the load factor of the table under 1/2
+        int capacity = Integer.highestOneBit(Math.max(8, 2 * this.tenure + 1)) << 1;
+        this.keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        this.expirations = new int[capacity];
+        this.mask = capacity - 1;
+        this.recent = new long[this.tenure];
+    }
+
+    /** Records that task1 and task2, task1 being before task2, are swapped at iteration k : putting task1 back
+     * before task2 is taboo during the next `tenure` iterations. At most one swap can be added per iteration. */
+    void add(int task1, int task2, int k) {
+        if(tenure == 0)
+            return;
+        long key = key(task2, task1);
+        int ring = (int) (added % tenure);
+        if(added >= tenure) {
+            // this pair was added `tenure` additions ago, hence at least `tenure` iterations ago : unless it was added
+            // again since, it is not taboo anymore
+            long old = recent[ring];
+            int slot = find(old);
+            if(keys[slot] == old && expirations[slot] <= k)
+                remove(slot);
+        }
+        recent[ring] = key;
+        added++;
+
+        int slot = find(key);
+        keys[slot] = key;
+        expirations[slot] = k + tenure;
+    }
+
+    /** Whether swapping task1 and task2, task1 being before task2, is taboo at iteration k. */
+    boolean isTaboo(int task1, int task2, int k) {
+        long key = key(task1, task2);
+        int slot = find(key);
+        return keys[slot] == key && k < expirations[slot];
+    }
+
+    private static long key(int before, int after) {
+        return ((long) before << 32) | after;
+    }
+
+    /** Slot containing the key, or the empty slot where it should be inserted. */
+    private int find(long key) {
+        int slot = hash(key) & mask;
+        while(keys[slot] != EMPTY && keys[slot] != key)
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private static int hash(long key) {
+        // finalizer of SplitMix64, to spread consecutive task identifiers
+        key = (key ^ (key >>> 30)) * 0xbf58476d1ce4e5b9L;
+        key = (key ^ (key >>> 27)) * 0x94d049bb133111ebL;
+        return (int) (key ^ (key >>> 31));
+    }
+
+    /** Empties the slot, moving back the following entries of its probe sequence so that they can still be found. */
+    private void remove(int slot) {
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while(keys[next] != EMPTY) {
+            int home = hash(keys[next]) & mask;
+            // the entry at `next` can fill the hole if its home slot is not in (hole, next]
+            if(((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                expirations[hole] = expirations[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[hole] = EMPTY;
+    }
+}
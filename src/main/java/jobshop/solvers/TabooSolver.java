@@ -4,84 +4,134 @@ import java.util.ArrayList;
 import java.util.List;
 
 import jobshop.Instance;
+import jobshop.Metrics;
 import jobshop.Result;
 import jobshop.Result.ExitCause;
+import jobshop.SolveContext;
 import jobshop.encodings.ResourceOrder;
-import jobshop.encodings.Task;
 
 public class TabooSolver extends DescentSolver {
 
 	private int maxIter;
-	private int dureeTaboo;
-	private int[][] sTaboo ; 
+	int dureeTaboo;
+	//number of threads evaluating the neighborhood (see NeighborhoodEvaluator)
+	private int numThreads;
 
 	public TabooSolver(int maxIter, int dureeTaboo) {
-		super(); 
+		this(maxIter, dureeTaboo, SwapEvaluator.Mode.Approximate); 
+	}
+
+	public TabooSolver(int maxIter, int dureeTaboo, SwapEvaluator.Mode evaluationMode) {
+		this(maxIter, dureeTaboo, evaluationMode, 1); 
+	}
+
+	public TabooSolver(int maxIter, int dureeTaboo, SwapEvaluator.Mode evaluationMode, int numThreads) {
+		super(evaluationMode); 
 		this.maxIter = maxIter ; 
 		this.dureeTaboo = dureeTaboo ; 
+		this.numThreads = numThreads ; 
 	}
 
 	@Override
-	public Result solve(Instance instance, long deadline) {
-		//initialization of result
-		GreedySolver greedySolver = new GreedySolver(GreedyPriority.EST_LRPT) ;  
-		ResourceOrder bestOrder = new ResourceOrder(greedySolver.solve(instance, System.currentTimeMillis() + 10).schedule); 
-		ResourceOrder currentOrder = bestOrder.copy(); 
+	public Result solve(Instance instance, SolveContext context) {
+		context.start(instance) ; 
+		try (NeighborhoodEvaluator neighborhood = new NeighborhoodEvaluator(instance, evaluationMode, numThreads)) {
+			//initialization of result
+			Trajectory trajectory = new Trajectory(initialOrder(instance), dureeTaboo, neighborhood, context) ; 
 
-		this.sTaboo = new int[instance.numJobs * instance.numTasks][instance.numJobs * instance.numTasks] ; 
+			boolean hasChanged = true ; 
+			while (trajectory.k<maxIter && !context.shouldStop() && hasChanged) {
+				hasChanged = trajectory.step() ; 
+			}
+			boolean blocked = trajectory.k>=maxIter || !hasChanged ; 
+			ExitCause exit = (blocked && !context.isProvedOptimal() ? ExitCause.Blocked : context.exitCause(ExitCause.Timeout)) ; 
+			context.countCacheLookups(neighborhood.cacheHits(), neighborhood.cacheMisses()) ; 
+			return new Result(instance, trajectory.bestOrder.toSchedule(), exit, context.trace()); 
+		}
+	}
 
+	/** State of a taboo search : its current solution, the best solution it visited and its taboo memory. */
+	class Trajectory {
+		final ResourceOrder bestOrder ; 
+		int bestMakespan ; 
+		final ResourceOrder currentOrder ; 
+		//number of iterations performed
 		int k = 0 ; 
-		boolean hasChanged = true ; 
-		while (k<maxIter && (deadline - System.currentTimeMillis() >1 ) && hasChanged) {
-			hasChanged = false ; 
-			List<Block> blocks = blocksOfCriticalPath(currentOrder);
-			List<Swap> swaps = new ArrayList<DescentSolver.Swap>() ; 
-			for (Block b : blocks) {
-				swaps.addAll(neighbors(b)) ;
-			}
 
-			//search the best neighbor among neighbors
-			ResourceOrder bestNeighboor = new ResourceOrder(instance) ;
-			int bestMakespan = Integer.MAX_VALUE ; 
-			
-			Swap bestSwap = null ; 
-			for (Swap s : swaps) {
-				if (!isTaboo(s, currentOrder, k)) {
-					ResourceOrder currentNeighboor = currentOrder.copy() ; 
-					s.applyOn(currentNeighboor);
-					if (currentNeighboor.toSchedule().makespan() < bestMakespan) {
-						bestMakespan = currentNeighboor.toSchedule().makespan() ; 
-						bestNeighboor = currentNeighboor.copy() ; 
-						bestSwap = s ; 
-						hasChanged = true ; 
-					}
-				}
+		private final int dureeTaboo ; 
+		private final NeighborhoodEvaluator neighborhood ; 
+		//where iterations, evaluations and improvements of the best solution are reported
+		private final SolveContext context ; 
+		private final TabooMemory taboo ; 
+		private final List<Swap> candidates = new ArrayList<DescentSolver.Swap>() ; 
+
+		Trajectory(ResourceOrder start, int dureeTaboo, NeighborhoodEvaluator neighborhood, SolveContext context) {
+			this.dureeTaboo = dureeTaboo ; 
+			this.neighborhood = neighborhood ; 
+			this.context = context ; 
+			this.bestOrder = start.copy() ; 
+			this.currentOrder = start.copy() ; 
+			this.bestMakespan = neighborhood.update(currentOrder) ; 
+			context.record(k, bestMakespan) ; 
+			this.taboo = new TabooMemory(dureeTaboo) ; 
+		}
+
+		/** Moves the current solution to its best non taboo neighbor.
+		 * @return false if all neighbors were taboo, in which case the current solution is unchanged. */
+		boolean step() {
+			//neighbors and candidates are reused buffers : a step allocates nothing
+			List<Swap> neighbors = neighborsOfCriticalPath(neighborhood.evaluator) ; 
+			candidates.clear() ; 
+			for (int i = 0 ; i < neighbors.size() ; i++) {
+				if (!isTaboo(neighbors.get(i), currentOrder, k)) 
+					candidates.add(neighbors.get(i)) ; 
 			}
-			if (bestSwap != null) {
+
+			//search the best neighbor among non taboo neighbors
+			int best = neighborhood.best(candidates) ; 
+			context.countIteration() ; 
+			context.countEvaluations(candidates.size()) ; 
+			if (best >= 0) {
+				Swap bestSwap = candidates.get(best) ; 
 				addTaboo(bestSwap, currentOrder, k) ; 
-				currentOrder = bestNeighboor.copy(); 
-			}
-			
-			
-			if (bestMakespan < bestOrder.toSchedule().makespan()) {
-				bestOrder = currentOrder.copy() ; 
+				bestSwap.applyOn(currentOrder);
+				int currentMakespan = neighborhood.update(currentOrder) ; 
+				
+				if (currentMakespan < bestMakespan) {
+					bestMakespan = currentMakespan ; 
+					bestOrder.copyFrom(currentOrder) ; 
+					context.record(k+1, bestMakespan) ; 
+				}
 			}
 			k++; 
+			return best >= 0 ; 
 		}
-		ExitCause exit = (k<maxIter ? ExitCause.Timeout : ExitCause.Blocked) ; 
-		return new Result(instance, bestOrder.toSchedule(), exit); 
-	}
 
-	private void addTaboo(Swap swap, ResourceOrder order, int k) {
-		Task task1 = order.tasksByMachine[swap.machine][swap.t1] ; 
-		Task task2 = order.tasksByMachine[swap.machine][swap.t2] ; 
-		sTaboo[task2.job * order.instance.numTasks+task2.task][task1.job * order.instance.numTasks + task1.task] = k + dureeTaboo ; 		
-	}
+		/** Continues the search from the given solution, which becomes the best one if it is better. */
+		void moveTo(ResourceOrder order) {
+			currentOrder.copyFrom(order) ; 
+			int makespan = neighborhood.update(currentOrder) ; 
+			if (makespan < bestMakespan) {
+				bestMakespan = makespan ; 
+				bestOrder.copyFrom(currentOrder) ; 
+				context.record(k, bestMakespan) ; 
+			}
+		}
 
-	private boolean isTaboo(Swap swap, ResourceOrder order, int k) {
-		Task task1 = order.tasksByMachine[swap.machine][swap.t1] ; 
-		Task task2 = order.tasksByMachine[swap.machine][swap.t2] ; 
-		return k < sTaboo[task1.job * order.instance.numTasks + task1.task][task2.job * order.instance.numTasks+task2.task] ; 
+		private void addTaboo(Swap swap, ResourceOrder order, int k) {
+			int task1 = order.taskAt(swap.machine, swap.t1) ; 
+			int task2 = order.taskAt(swap.machine, swap.t2) ; 
+			taboo.add(task1, task2, k) ; 
+		}
+
+		private boolean isTaboo(Swap swap, ResourceOrder order, int k) {
+			int task1 = order.taskAt(swap.machine, swap.t1) ; 
+			int task2 = order.taskAt(swap.machine, swap.t2) ; 
+			boolean isTaboo = taboo.isTaboo(task1, task2, k) ; 
+			if (isTaboo) 
+				Metrics.increment(Metrics.Counter.TabooRejections) ; 
+			return isTaboo ; 
+		}
 	}
 
 }
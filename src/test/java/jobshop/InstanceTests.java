@@ -0,0 +1,176 @@
+package jobshop;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+public class InstanceTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /** Writes the given content to a new file and parses it, expecting an error at the given line and column.
+     * @return the message of the error */
+    private String parseError(String content, int line, int column) throws IOException {
+        Path path = folder.newFile().toPath();
+        Files.write(path, content.getBytes(StandardCharsets.US_ASCII));
+        try {
+            Instance.fromFile(path);
+        } catch (IOException e) {
+            String prefix = path + ":" + line + ":" + column + ": ";
+            assert e.getMessage().startsWith(prefix)
+                    : "expected an error at " + line + ":" + column + ", got: " + e.getMessage();
+            return e.getMessage().substring(prefix.length());
+        }
+        throw new AssertionError("malformed file parsed without error: " + content);
+    }
+
+    @Test
+    public void testMalformedFiles() throws IOException {
+        // a valid file, with comments and blank lines
+        Path path = folder.newFile().toPath();
+        Files.write(path, "# two jobs\n2 3\n\n0 1 1 2 2 3\n# second job\n2 4 1 5 0 6 trailing\n".getBytes(StandardCharsets.US_ASCII));
+        Instance instance = Instance.fromFile(path);
+        assert instance.numJobs == 2 && instance.numTasks == 3;
+        assert instance.machine(1, 0) == 2 && instance.duration(1, 2) == 6;
+
+        // line numbers count comments and blank lines
+        assert parseError("# two jobs\n2 3\n\n0 1 1 2 2 3\n# second job\n2 4 x 5 0 6\n", 6, 5)
+                .equals("expected the machine of task 1 of job 1, found \"x\"");
+        assert parseError("2 3\n0 1 1 2 2 3\n2 4 1 5 0\n", 3, 10)
+                .equals("expected the duration of task 2 of job 1, found the end of line");
+        assert parseError("2 3\r\n0 1 1 2 2 3\r\n2 4 1 5 0\r\n", 3, 10)
+                .equals("expected the duration of task 2 of job 1, found the end of line");
+        assert parseError("2 3\n0 1 1 2 2 3\n", 3, 1).equals("unexpected end of file");
+        assert parseError("2 3\n0 1 1 2 2 3\n2 4 1 5 0", 3, 10)
+                .equals("expected the duration of task 2 of job 1, found the end of file");
+        assert parseError("2 3\n0 1 1 2 2 3\n2 4 1 5 0 6x\n", 3, 11)
+                .equals("expected the duration of task 2 of job 1, found \"6x\"");
+        assert parseError("2\n", 1, 2).equals("expected the number of tasks, found the end of line");
+        assert parseError("0 3\n", 1, 1).equals("invalid size 0x3");
+        assert parseError("1 2\n0 99999999999 1 1\n", 2, 3).equals("the duration of task 0 of job 0 is too large");
+        assert parseError("", 1, 1).equals("unexpected end of file");
+
+        // values that are integers but do not describe a job shop
+        assert parseError("2 3\n0 1 1 2 2 3\n2 4 1 -5 0 6\n", 3, 7).equals("the duration of task 1 of job 1 is negative");
+        assert parseError("2 3\n0 1 1 2 3 3\n", 2, 9)
+                .equals("invalid machine 3 for task 2 of job 0, expected a machine in [0, 2]");
+        assert parseError("2 3\n0 1 1 2 2 3\n  2 4 -1 5 0 6\n", 3, 7)
+                .equals("invalid machine -1 for task 1 of job 1, expected a machine in [0, 2]");
+        assert parseError("2 3\n0 1 1 2 2 3\n2 4 0 5 0 6\n", 3, 9)
+                .equals("machine 0 is used by both tasks 1 and 2 of job 1");
+
+        // durations can be zero, as in orb07
+        Files.write(path, "2 2\n0 0 1 3\n1 2 0 0\n".getBytes(StandardCharsets.US_ASCII));
+        assert Instance.fromFile(path).duration(1, 1) == 0;
+
+        // instances built from arrays are checked as well
+        try {
+            new Instance(1, 3, new int[] {0, 2, 0}, new int[] {1, 1, 1});
+            throw new AssertionError("machine used twice by a job");
+        } catch (IllegalArgumentException e) {
+            assert e.getMessage().equals("Machine 0 is used by both tasks (0, 0) and (0, 2)") : e.getMessage();
+        }
+    }
+
+    /** Whether both instances have the same tasks and the same derived tables. */
+    private static boolean sameInstance(Instance a, Instance b) {
+        return a.numJobs == b.numJobs && a.numTasks == b.numTasks && a.numMachines == b.numMachines
+                && Arrays.equals(a.machines, b.machines) && Arrays.equals(a.durations, b.durations)
+                && Arrays.equals(a.taskWithMachine, b.taskWithMachine) && Arrays.equals(a.remainingWork, b.remainingWork)
+                && Arrays.equals(a.machineLoads, b.machineLoads);
+    }
+
+    @Test
+    public void testBinaryRoundTrip() throws IOException {
+        for(String name : new String[] {"aaa1", "ft06", "ft20", "la21", "ta01", "ta71"}) {
+            Instance parsed = Instance.fromFile(Paths.get("instances", name));
+
+            // text format
+            Path text = folder.getRoot().toPath().resolve(name);
+            parsed.toFile(text);
+            assert sameInstance(Instance.fromFile(text), parsed) : name;
+
+            // binary format, read directly or by load() since it is newer than the text file
+            Path binary = BinaryInstance.binaryPathOf(text);
+            BinaryInstance.write(Instance.fromFile(text), binary);
+            assert sameInstance(BinaryInstance.read(binary), parsed) : name;
+            assert sameInstance(Instance.load(text), parsed) : name;
+            assert Instance.load(text).lowerBound() == parsed.lowerBound();
+        }
+
+        // corrupt or foreign binary files are rejected
+        byte[] bytes = Files.readAllBytes(BinaryInstance.binaryPathOf(folder.getRoot().toPath().resolve("ft06")));
+        assert binaryError(Arrays.copyOf(bytes, bytes.length - 4)).endsWith("size does not match a 6x6 instance");
+        assert binaryError(Arrays.copyOf(bytes, 8)).endsWith("not a binary instance (too short)");
+        assert binaryError(withInt(bytes, 0, 0x12345678)).endsWith("not a binary instance");
+        assert binaryError(withInt(bytes, 1, 2)).endsWith("unsupported version 2 (expected 1)");
+        // a machine used twice by job 0
+        assert binaryError(withInt(bytes, 4, bytes[4 * 5])).contains("is used by both tasks");
+        // a derived table that does not match the tasks : remaining work of the first task of job 0
+        int remainingWork = 4 + 2 * 36 + 36;
+        assert binaryError(withInt(bytes, remainingWork, 1)).endsWith("derived tables do not match the tasks of the instance");
+
+        // a failed write does not leave its temporary file behind
+        Path directory = folder.newFolder("directory.bin").toPath();
+        Files.createFile(directory.resolve("content"));
+        try {
+            BinaryInstance.write(Instance.fromFile(Paths.get("instances/ft06")), directory);
+            throw new AssertionError("binary instance written over a non-empty directory");
+        } catch (IOException e) {
+            assert !Files.exists(directory.resolveSibling("directory.bin.tmp"));
+        }
+    }
+
+    /** Copy of a binary file in which the little-endian integer at the given index is replaced. */
+    private static byte[] withInt(byte[] bytes, int index, int value) {
+        byte[] copy = bytes.clone();
+        for(int b = 0 ; b < 4 ; b++) {
+            copy[4 * index + b] = (byte) (value >>> (8 * b));
+        }
+        return copy;
+    }
+
+    /** Reads the content as a binary instance, expecting an error.
+     * @return the message of the error */
+    private String binaryError(byte[] content) throws IOException {
+        Path path = folder.newFile().toPath();
+        Files.write(path, content);
+        try {
+            BinaryInstance.read(path);
+        } catch (IOException e) {
+            return e.getMessage();
+        }
+        throw new AssertionError("invalid binary instance read without error");
+    }
+
+    @Test
+    public void testTaillardGenerator() throws IOException {
+        // the seeds of ta01 given by Taillard
+        Instance generated = InstanceGenerator.taillard(15, 15, 840612802, 398197754);
+        assert sameInstance(generated, Instance.fromFile(Paths.get("instances/ta01")));
+
+        // other distributions and routings stay in their range, and the same seeds give the same instance
+        for(InstanceGenerator.Distribution distribution : InstanceGenerator.Distribution.values()) {
+            for(InstanceGenerator.Routing routing : InstanceGenerator.Routing.values()) {
+                InstanceGenerator generator = new InstanceGenerator(20, 10, 5, 50, distribution, routing);
+                Instance instance = generator.generate(12345, 67890);
+                assert sameInstance(instance, generator.generate(12345, 67890));
+                for(int job = 0 ; job < instance.numJobs ; job++) {
+                    for(int task = 0 ; task < instance.numTasks ; task++) {
+                        assert instance.duration(job, task) >= 5 && instance.duration(job, task) <= 50;
+                        if(routing == InstanceGenerator.Routing.FlowShop)
+                            assert instance.machine(job, task) == task;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package jobshop;
+
+import jobshop.solvers.DescentSolver;
+import jobshop.solvers.GreedyPriority;
+import jobshop.solvers.GreedySolver;
+import jobshop.solvers.IslandTabooSolver;
+import jobshop.solvers.MultiStartDescentSolver;
+import jobshop.solvers.RandomSolver;
+import jobshop.solvers.TabooSolver;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+public class LowerBoundTests {
+
+    @Test
+    public void testBoundsBelowBestKnownResults() throws IOException {
+        int checked = 0;
+        for(String name : BestKnownResult.instances) {
+            Path path = Paths.get("instances", name);
+            if(!Files.exists(path))
+                continue;
+            Instance instance = Instance.fromFile(path);
+            int bound = LowerBound.of(instance);
+            assert bound <= BestKnownResult.of(name) : name + ": bound " + bound + " > " + BestKnownResult.of(name);
+            assert bound == instance.lowerBound();
+            // the one-machine relaxation is at least as good as the machine load
+            assert LowerBound.oneMachine(instance) >= LowerBound.maxMachineLoad(instance) : name;
+            assert bound >= LowerBound.maxJobLength(instance) : name;
+            checked++;
+        }
+        assert checked > 100 : checked;
+    }
+
+    /** Solves the instance without any deadline : the solver must stop by itself when it reaches the lower bound. */
+    private static void checkProvedOptimal(String name, Solver solver) throws IOException {
+        Instance instance = Instance.fromFile(Paths.get("instances", name));
+        // the timeout only prevents the test from hanging if the solver does not stop
+        SolveContext context = SolveContext.withTimeout(60, TimeUnit.SECONDS);
+        Result result = solver.solve(instance, context);
+        assert result.cause == Result.ExitCause.ProvedOptimal : name + ": " + solver.getClass().getSimpleName()
+                + " exited with " + result.cause + " (makespan " + result.schedule.makespan() + ")";
+        assert result.schedule.isValid();
+        assert result.schedule.makespan() == instance.lowerBound();
+    }
+
+    @Test
+    public void testSolversStopAtLowerBound() throws IOException {
+        // the greedy solution of la05 is already optimal
+        checkProvedOptimal("la05", new GreedySolver(GreedyPriority.EST_LRPT));
+        checkProvedOptimal("la05", new DescentSolver());
+        checkProvedOptimal("la05", new RandomSolver());
+        // la01 and la07 need a search to reach their bound
+        checkProvedOptimal("la01", new TabooSolver(100_000, 5));
+        checkProvedOptimal("la07", new TabooSolver(100_000, 5));
+        checkProvedOptimal("la01", new MultiStartDescentSolver(2));
+        checkProvedOptimal("la01", new IslandTabooSolver(2, 5, 100));
+    }
+}
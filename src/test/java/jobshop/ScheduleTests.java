@@ -0,0 +1,124 @@
+package jobshop;
+
+import jobshop.encodings.ResourceOrder;
+import jobshop.encodings.Task;
+import jobshop.solvers.GreedyPriority;
+import jobshop.solvers.GreedySolver;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+
+public class ScheduleTests {
+
+    /** Solution of the given greedy rule, without any time limit. */
+    private static Schedule greedy(Instance instance, GreedyPriority priority) {
+        return new GreedySolver(priority).solve(instance, SolveContext.unlimited()).schedule;
+    }
+
+    /** Validity of the schedule checked on every pair of tasks of each machine, as Schedule.isValid used to do. */
+    private static boolean isValidPairwise(Schedule schedule) {
+        Instance pb = schedule.pb;
+        for(int j = 0 ; j < pb.numJobs ; j++) {
+            for(int t = 0 ; t < pb.numTasks ; t++) {
+                if(schedule.startTime(j, t) < 0)
+                    return false;
+                if(t > 0 && schedule.endTime(j, t-1) > schedule.startTime(j, t))
+                    return false;
+            }
+        }
+        for(int machine = 0 ; machine < pb.numMachines ; machine++) {
+            for(int j1 = 0 ; j1 < pb.numJobs ; j1++) {
+                int t1 = pb.task_with_machine(j1, machine);
+                for(int j2 = j1+1 ; j2 < pb.numJobs ; j2++) {
+                    int t2 = pb.task_with_machine(j2, machine);
+                    boolean t1First = schedule.endTime(j1, t1) <= schedule.startTime(j2, t2);
+                    boolean t2First = schedule.endTime(j2, t2) <= schedule.startTime(j1, t1);
+                    if(!t1First && !t2First)
+                        return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Test
+    public void testIsValidOnPerturbedSchedules() throws IOException {
+        Instance[] instances = {
+                Instance.fromFile(Paths.get("instances/ft06")),
+                Instance.fromFile(Paths.get("instances/la21")),
+                // many tasks of duration 0, which never overlap a task starting at the same time
+                new InstanceGenerator(8, 6, 0, 3, InstanceGenerator.Distribution.Uniform,
+                        InstanceGenerator.Routing.Random).generate(42, 43)
+        };
+        Random random = new Random(0);
+        int valid = 0;
+        int invalid = 0;
+        for(Instance instance : instances) {
+            Schedule greedy = greedy(instance, GreedyPriority.EST_LRPT);
+            assert greedy.isValid() && isValidPairwise(greedy);
+
+            for(int k = 0 ; k < 2000 ; k++) {
+                int[][] times = new int[instance.numJobs][];
+                for(int j = 0 ; j < instance.numJobs ; j++) {
+                    times[j] = new int[instance.numTasks];
+                    for(int t = 0 ; t < instance.numTasks ; t++) {
+                        times[j][t] = greedy.startTime(j, t);
+                    }
+                }
+                // move a few tasks : by a small amount, or to the start or end of another task of the same machine
+                for(int moves = 1 + random.nextInt(3) ; moves > 0 ; moves--) {
+                    int j = random.nextInt(instance.numJobs);
+                    int t = random.nextInt(instance.numTasks);
+                    int other = random.nextInt(instance.numJobs);
+                    int otherTask = instance.task_with_machine(other, instance.machine(j, t));
+                    switch(random.nextInt(3)) {
+                        case 0:
+                            times[j][t] += random.nextInt(11) - 5;
+                            break;
+                        case 1:
+                            times[j][t] = times[other][otherTask];
+                            break;
+                        default:
+                            times[j][t] = times[other][otherTask] + instance.duration(other, otherTask);
+                    }
+                }
+                Schedule schedule = new Schedule(instance, times);
+                boolean expected = isValidPairwise(schedule);
+                assert schedule.isValid() == expected : "k = " + k + ": " + schedule.firstViolation();
+                if(expected)
+                    valid++;
+                else
+                    invalid++;
+
+                // a valid schedule may still be improved : the schedule of its resource order is valid too
+                if(expected)
+                    assert isValidPairwise(new ResourceOrder(schedule).toSchedule());
+            }
+        }
+        // both outcomes are actually tested
+        assert valid > 100 && invalid > 100 : valid + " valid, " + invalid + " invalid";
+    }
+
+    @Test
+    public void testCriticalPath() throws IOException {
+        Instance[] instances = {
+                Instance.fromFile(Paths.get("instances/ft06")),
+                Instance.fromFile(Paths.get("instances/la21")),
+                // orb07 and generated instances have tasks of duration 0, which may be skipped on a machine
+                Instance.fromFile(Paths.get("instances/orb07")),
+                new InstanceGenerator(8, 6, 0, 3, InstanceGenerator.Distribution.Uniform,
+                        InstanceGenerator.Routing.Random).generate(42, 43)
+        };
+        for(Instance instance : instances) {
+            for(GreedyPriority priority : GreedyPriority.values()) {
+                Schedule schedule = greedy(instance, priority);
+                List<Task> path = schedule.criticalPath();
+                assert schedule.isCriticalPath(path) : priority;
+                assert schedule.endTime(path.get(path.size() - 1)) == schedule.makespan();
+            }
+        }
+    }
+}
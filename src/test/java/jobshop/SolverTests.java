@@ -0,0 +1,169 @@
+package jobshop;
+
+import jobshop.solvers.BasicSolver;
+import jobshop.solvers.IslandTabooSolver;
+import jobshop.solvers.MultiStartDescentSolver;
+import jobshop.solvers.RandomSolver;
+import jobshop.solvers.TabooSolver;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class SolverTests {
+
+    /** A solver written against the original interface, which only knows about deadlines. */
+    private static final class DeadlineSolver implements Solver {
+        long deadline;
+
+        @Override
+        public Result solve(Instance instance, long deadline) {
+            this.deadline = deadline;
+            return new Result(instance, new BasicSolver().solve(instance, deadline).schedule, Result.ExitCause.Blocked);
+        }
+    }
+
+    @Test
+    public void testSolverWithDeadlineOnly() throws IOException {
+        Instance instance = Instance.fromFile(Paths.get("instances/ft06"));
+        DeadlineSolver solver = new DeadlineSolver();
+
+        // called directly
+        long deadline = System.currentTimeMillis() + 1000;
+        assert solver.solve(instance, deadline).schedule.isValid();
+        assert solver.deadline == deadline;
+
+        // called with a context : it is given the deadline of the context, and its solution is recorded
+        int[] notified = {-1};
+        SolveContext context = SolveContext.withTimeout(5, TimeUnit.SECONDS)
+                .onImprovement((iteration, makespan) -> notified[0] = makespan);
+        long before = System.currentTimeMillis();
+        Result result = solver.solve(instance, context);
+        assert solver.deadline >= before + 4900 && solver.deadline <= System.currentTimeMillis() + 5100;
+        assert result.cause == Result.ExitCause.Blocked;
+        assert notified[0] == result.schedule.makespan();
+        assert context.trace().size() == 1;
+
+        solver.solve(instance, SolveContext.unlimited());
+        assert solver.deadline == Long.MAX_VALUE;
+    }
+
+    /** Solves ta21, whose lower bound is not reached by any solver in a few seconds, and checks the exit cause. */
+    private static Result solveTa21(Solver solver, SolveContext context, Result.ExitCause expected) throws IOException {
+        Result result = solver.solve(Instance.fromFile(Paths.get("instances/ta21")), context);
+        assert result.cause == expected : solver.getClass().getSimpleName() + " exited with " + result.cause;
+        assert result.schedule.isValid();
+        assert result.schedule.makespan() == context.trace().makespan(context.trace().size() - 1);
+        return result;
+    }
+
+    @Test
+    public void testCancel() throws IOException {
+        // cancelled by the solver thread, when the third improvement is reported
+        SolveContext context = SolveContext.withTimeout(60, TimeUnit.SECONDS);
+        context.onImprovement((iteration, makespan) -> {
+            if(context.trace().size() == 3)
+                context.cancel();
+        });
+        solveTa21(new TabooSolver(Integer.MAX_VALUE, 10), context, Result.ExitCause.Cancelled);
+        assert context.trace().size() == 3;
+
+        // cancelled by another thread while all islands are searching
+        SolveContext islands = SolveContext.withTimeout(60, TimeUnit.SECONDS);
+        Thread canceller = new Thread(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            islands.cancel();
+        });
+        canceller.start();
+        long start = System.currentTimeMillis();
+        solveTa21(new IslandTabooSolver(2, 10, 100), islands, Result.ExitCause.Cancelled);
+        assert System.currentTimeMillis() - start < 10_000;
+    }
+
+    @Test
+    public void testIterationBudget() throws IOException {
+        SolveContext context = SolveContext.withTimeout(60, TimeUnit.SECONDS).iterationBudget(500);
+        solveTa21(new TabooSolver(Integer.MAX_VALUE, 10), context, Result.ExitCause.BudgetExhausted);
+        assert context.iterations() == 500;
+
+        // the budget is shared by all workers, each one finishing its current descent
+        context = SolveContext.withTimeout(60, TimeUnit.SECONDS).iterationBudget(500);
+        solveTa21(new MultiStartDescentSolver(2), context, Result.ExitCause.BudgetExhausted);
+        assert context.iterations() >= 500;
+    }
+
+    @Test
+    public void testEvaluationBudget() throws IOException {
+        SolveContext context = SolveContext.withTimeout(60, TimeUnit.SECONDS).evaluationBudget(2000);
+        solveTa21(new RandomSolver(), context, Result.ExitCause.BudgetExhausted);
+        assert context.evaluations() == 2000 && context.iterations() == 2000;
+
+        // a taboo iteration evaluates all its candidates before checking the budget
+        context = SolveContext.withTimeout(60, TimeUnit.SECONDS).evaluationBudget(2000);
+        solveTa21(new TabooSolver(Integer.MAX_VALUE, 10), context, Result.ExitCause.BudgetExhausted);
+        assert context.evaluations() >= 2000 && context.iterations() < 2000;
+    }
+
+    @Test
+    public void testTargetMakespan() throws IOException {
+        // a target above the initial solution is reached at once
+        SolveContext context = SolveContext.withTimeout(60, TimeUnit.SECONDS).targetMakespan(100_000);
+        solveTa21(new TabooSolver(Integer.MAX_VALUE, 10), context, Result.ExitCause.TargetReached);
+        assert context.iterations() == 0;
+
+        // a target below the initial solution needs a search, and the run stops at the first solution reaching it
+        int initial = new TabooSolver(0, 10).solve(Instance.fromFile(Paths.get("instances/ta21")),
+                SolveContext.unlimited()).schedule.makespan();
+        context = SolveContext.withTimeout(60, TimeUnit.SECONDS).targetMakespan(initial - 50);
+        Result result = solveTa21(new TabooSolver(Integer.MAX_VALUE, 10), context, Result.ExitCause.TargetReached);
+        assert result.schedule.makespan() <= initial - 50;
+        assert context.trace().makespan(context.trace().size() - 2) > initial - 50;
+    }
+
+    @Test
+    public void testImprovementListener() throws IOException {
+        List<Long> iterations = new ArrayList<>();
+        List<Integer> makespans = new ArrayList<>();
+        SolveContext context = SolveContext.withTimeout(60, TimeUnit.SECONDS).iterationBudget(2000)
+                .onImprovement((iteration, makespan) -> {
+                    iterations.add(iteration);
+                    makespans.add(makespan);
+                });
+        Result result = solveTa21(new TabooSolver(Integer.MAX_VALUE, 10), context, Result.ExitCause.BudgetExhausted);
+
+        // the listener is notified of the initial solution and of each improvement, as recorded in the trace
+        assert makespans.size() > 1 && makespans.size() == context.trace().size();
+        for(int i = 0 ; i < makespans.size() ; i++) {
+            assert makespans.get(i) == context.trace().makespan(i) && iterations.get(i) == context.trace().iteration(i);
+            if(i > 0)
+                assert makespans.get(i) < makespans.get(i - 1) && iterations.get(i) > iterations.get(i - 1);
+        }
+        assert iterations.get(0) == 0;
+        assert makespans.get(makespans.size() - 1) == result.schedule.makespan();
+    }
+
+    /** Whether building an island solver with these arguments is rejected. */
+    private static boolean rejected(int numIslands, int dureeTaboo, int migrationInterval) {
+        try {
+            new IslandTabooSolver(numIslands, dureeTaboo, migrationInterval);
+            return false;
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+    }
+
+    @Test
+    public void testIslandArguments() {
+        assert rejected(0, 10, 100) && rejected(-1, 10, 100);
+        assert rejected(2, -1, 100);
+        assert rejected(2, 10, 0) && rejected(2, 10, -5);
+        assert !rejected(1, 0, 1);
+    }
+}
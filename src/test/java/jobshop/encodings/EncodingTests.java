@@ -1,17 +1,29 @@
 package jobshop.encodings;
 
+import jobshop.Encoding;
 import jobshop.Instance;
 import jobshop.Result;
 import jobshop.Schedule;
+import jobshop.SolveContext;
 import jobshop.Solver;
 import jobshop.solvers.BasicSolver;
+import jobshop.solvers.GreedyPriority;
+import jobshop.solvers.GreedySolver;
 import org.junit.Test;
 
 import java.io.IOException;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 
 public class EncodingTests {
 
+    /** Solution of the EST_LRPT greedy rule, the starting point of most tests below. */
+    private static ResourceOrder greedyOrder(Instance instance) {
+        return new ResourceOrder(new GreedySolver(GreedyPriority.EST_LRPT).solve(instance, SolveContext.unlimited()).schedule);
+    }
+
     @Test
     public void testJobNumbers() throws IOException {
         Instance instance = Instance.fromFile(Paths.get("instances/aaa1"));
@@ -53,23 +65,23 @@ public class EncodingTests {
 
 
           ResourceOrder enc = new ResourceOrder(instance);
-          enc.tasksByMachine[0][0] = new Task(1,1);
-          enc.tasksByMachine[0][1] = new Task(0,0);
-          enc.tasksByMachine[1][0] = new Task(0,1);
-          enc.tasksByMachine[1][1] = new Task(1,0);
-          enc.tasksByMachine[2][0] = new Task(0,2);
-          enc.tasksByMachine[2][1] = new Task(1,2);
+          enc.setTask(0, 0, new Task(1,1));
+          enc.setTask(0, 1, new Task(0,0));
+          enc.setTask(1, 0, new Task(0,1));
+          enc.setTask(1, 1, new Task(1,0));
+          enc.setTask(2, 0, new Task(0,2));
+          enc.setTask(2, 1, new Task(1,2));
 
           Schedule sched = enc.toSchedule();
           assert (sched == null) ; 
           
           enc = new ResourceOrder(instance);
-          enc.tasksByMachine[0][0] = new Task(0,0);
-          enc.tasksByMachine[0][1] = new Task(1,1);
-          enc.tasksByMachine[1][0] = new Task(1,0);
-          enc.tasksByMachine[1][1] = new Task(0,1);
-          enc.tasksByMachine[2][0] = new Task(0,2);
-          enc.tasksByMachine[2][1] = new Task(1,2);
+          enc.setTask(0, 0, new Task(0,0));
+          enc.setTask(0, 1, new Task(1,1));
+          enc.setTask(1, 0, new Task(1,0));
+          enc.setTask(1, 1, new Task(0,1));
+          enc.setTask(2, 0, new Task(0,2));
+          enc.setTask(2, 1, new Task(1,2));
 
           sched = enc.toSchedule();
           System.out.println(sched);
@@ -77,12 +89,12 @@ public class EncodingTests {
           assert sched.makespan() == 12;
           
           enc = new ResourceOrder(instance);
-          enc.tasksByMachine[0][0] = new Task(0,0);
-          enc.tasksByMachine[0][1] = new Task(1,1);
-          enc.tasksByMachine[1][0] = new Task(0,1);
-          enc.tasksByMachine[1][1] = new Task(1,0);
-          enc.tasksByMachine[2][0] = new Task(0,2);
-          enc.tasksByMachine[2][1] = new Task(1,2);
+          enc.setTask(0, 0, new Task(0,0));
+          enc.setTask(0, 1, new Task(1,1));
+          enc.setTask(1, 0, new Task(0,1));
+          enc.setTask(1, 1, new Task(1,0));
+          enc.setTask(2, 0, new Task(0,2));
+          enc.setTask(2, 1, new Task(1,2));
 
           sched = enc.toSchedule();
           System.out.println(sched);
@@ -90,12 +102,12 @@ public class EncodingTests {
           assert sched.makespan() == 14;
           
           enc = new ResourceOrder(instance);
-          enc.tasksByMachine[0][0] = new Task(0,0);
-          enc.tasksByMachine[0][1] = new Task(1,1);
-          enc.tasksByMachine[1][0] = new Task(1,0);
-          enc.tasksByMachine[1][1] = new Task(0,1);
-          enc.tasksByMachine[2][0] = new Task(1,2);
-          enc.tasksByMachine[2][1] = new Task(0,2);
+          enc.setTask(0, 0, new Task(0,0));
+          enc.setTask(0, 1, new Task(1,1));
+          enc.setTask(1, 0, new Task(1,0));
+          enc.setTask(1, 1, new Task(0,1));
+          enc.setTask(2, 0, new Task(1,2));
+          enc.setTask(2, 1, new Task(0,2));
 
           sched = enc.toSchedule();
           System.out.println(sched);
@@ -103,6 +115,286 @@ public class EncodingTests {
           assert sched.makespan() == 11;
     }
     
+    /** Whether the disjunctive graph of the (complete) order contains a cycle, found by a depth-first search. */
+    private static boolean hasCycle(ResourceOrder order) {
+        Instance instance = order.instance;
+        // 0 : not visited, 1 : on the current path, 2 : done
+        int[] state = new int[instance.numJobs * instance.numTasks];
+        for(int id = 0 ; id < state.length ; id++) {
+            if(state[id] == 0 && reachesPath(order, id, state))
+                return true;
+        }
+        return false;
+    }
+
+    private static boolean reachesPath(ResourceOrder order, int id, int[] state) {
+        Instance instance = order.instance;
+        state[id] = 1;
+        int position = order.positionOf(id);
+        int[] successors = {
+                instance.taskOf(id) < instance.numTasks-1 ? id+1 : -1,
+                position < instance.numJobs-1 ? order.taskAt(instance.machine(id), position+1) : -1
+        };
+        for(int succ : successors) {
+            if(succ < 0)
+                continue;
+            if(state[succ] == 1 || (state[succ] == 0 && reachesPath(order, succ, state)))
+                return true;
+        }
+        state[id] = 2;
+        return false;
+    }
+
+    @Test
+    public void testDecodeCycles() throws IOException {
+        Instance instance = Instance.fromFile(Paths.get("instances/ft06"));
+        ResourceOrder order = greedyOrder(instance);
+        int[] startTimes = new int[instance.numJobs * instance.numTasks];
+        int[] topologicalOrder = new int[instance.numJobs * instance.numTasks];
+
+        // try all swaps of two tasks of a machine : some of them create a cycle
+        int cycles = 0;
+        for(int m = 0 ; m < instance.numMachines ; m++) {
+            for(int i1 = 0 ; i1 < instance.numJobs ; i1++) {
+                for(int i2 = i1+1 ; i2 < instance.numJobs ; i2++) {
+                    order.swap(m, i1, i2);
+                    int makespan = order.decode(startTimes, topologicalOrder);
+                    Schedule schedule = order.toSchedule();
+                    if(hasCycle(order)) {
+                        cycles++;
+                        assert makespan == -1;
+                        assert schedule == null;
+                        assert order.evaluateMakespan() == -1;
+                    } else {
+                        assert schedule != null && schedule.isValid();
+                        assert makespan == schedule.makespan();
+                    }
+                    order.swap(m, i1, i2);
+                }
+            }
+        }
+        assert cycles > 0;
+    }
+
+    @Test
+    public void testCriticalBlocks() throws IOException {
+        Instance instance = Instance.fromFile(Paths.get("instances/ft06"));
+        ResourceOrder order = greedyOrder(instance);
+        int numTasks = instance.numJobs * instance.numTasks;
+        int[] startTimes = new int[numTasks];
+        int[] topologicalOrder = new int[numTasks];
+        int[] blocks = new int[3 * (numTasks / 2)];
+
+        // the greedy order and orders obtained from it by random swaps of adjacent tasks (skipping those that
+        // create a cycle)
+        Random random = new Random(0);
+        for(int k = 0 ; k < 200 ; k++) {
+            int makespan = order.decode(startTimes, topologicalOrder);
+            Schedule schedule = order.toSchedule();
+            int numBlocks = order.criticalBlocks(startTimes, blocks);
+
+            // expected blocks : maximal runs of at least two consecutive tasks of the critical path on the same
+            // machine, as (machine, first task, last task)
+            List<Task> path = schedule.criticalPath();
+            assert schedule.isCriticalPath(path);
+            List<List<Task>> runs = new ArrayList<>();
+            int start = 0;
+            for(int i = 1 ; i <= path.size() ; i++) {
+                if(i == path.size() || instance.machine(path.get(i)) != instance.machine(path.get(start))) {
+                    if(i - start >= 2)
+                        runs.add(path.subList(start, i));
+                    start = i;
+                }
+            }
+            assert numBlocks == runs.size();
+
+            for(int b = 0 ; b < numBlocks ; b++) {
+                int machine = blocks[3*b];
+                int first = blocks[3*b+1];
+                int last = blocks[3*b+2];
+                List<Task> run = runs.get(b);
+                assert first < last && last - first + 1 == run.size();
+                for(int i = first ; i <= last ; i++) {
+                    // contiguous on the machine and on the critical path
+                    Task task = order.getTask(machine, i);
+                    assert task.equals(run.get(i - first));
+                    assert instance.machine(task) == machine;
+                    // tight : each task starts when the previous one of the block ends
+                    if(i > first)
+                        assert schedule.startTime(task) == schedule.endTime(order.getTask(machine, i-1));
+                }
+            }
+            assert makespan == schedule.makespan();
+
+            // move to a random neighbor without cycle
+            int machine = random.nextInt(instance.numMachines);
+            int i = random.nextInt(instance.numJobs - 1);
+            order.swap(machine, i, i+1);
+            if(order.evaluateMakespan() < 0)
+                order.swap(machine, i, i+1);
+        }
+    }
+
+    @Test
+    public void testEvaluateMakespanAfterLargerInstance() throws IOException {
+        Instance small = Instance.fromFile(Paths.get("instances/ft06"));
+        Instance large = Instance.fromFile(Paths.get("instances/la21"));
+        Solver greedy = new GreedySolver(GreedyPriority.EST_LRPT);
+        ResourceOrder smallOrder = new ResourceOrder(greedy.solve(small, Long.MAX_VALUE).schedule);
+        ResourceOrder largeOrder = new ResourceOrder(greedy.solve(large, Long.MAX_VALUE).schedule);
+        int expected = smallOrder.toSchedule().makespan();
+
+        // the buffers of the thread grow to the size of the large instance, and are then reused for the small one
+        assert smallOrder.evaluateMakespan() == expected;
+        assert largeOrder.evaluateMakespan() == largeOrder.toSchedule().makespan();
+        assert smallOrder.evaluateMakespan() == expected;
+        assert new JobNumbers(smallOrder).evaluateMakespan() == expected;
+    }
+
+    /** Checks evaluateMakespan(cutoff) against the makespan of the schedule of the encoding. */
+    private static void checkCutoffs(Encoding enc, Random random) {
+        int makespan = enc.toSchedule().makespan();
+        for(int cutoff : new int[] {0, makespan / 2, makespan - 1, makespan, makespan + 1,
+                random.nextInt(2 * makespan), Integer.MAX_VALUE}) {
+            int value = enc.evaluateMakespan(cutoff);
+            if(makespan <= cutoff)
+                assert value == makespan : "cutoff " + cutoff + ": " + value + " instead of " + makespan;
+            else
+                // a lower bound of the makespan, above the cutoff
+                assert value > cutoff && value <= makespan : "cutoff " + cutoff + ": " + value + " for " + makespan;
+        }
+    }
+
+    @Test
+    public void testEvaluateMakespanWithCutoff() throws IOException {
+        Random random = new Random(0);
+        for(String name : new String[] {"aaa1", "ft10", "la21", "ta21"}) {
+            Instance instance = Instance.fromFile(Paths.get("instances", name));
+            for(int k = 0 ; k < 50 ; k++) {
+                // random job numbers : each job appears numTasks times, in a random order
+                JobNumbers jobNumbers = new JobNumbers(instance);
+                for(int job = 0 ; job < instance.numJobs ; job++) {
+                    for(int task = 0 ; task < instance.numTasks ; task++) {
+                        jobNumbers.jobs[jobNumbers.nextToSet++] = job;
+                    }
+                }
+                for(int i = jobNumbers.jobs.length - 1 ; i > 0 ; i--) {
+                    int other = random.nextInt(i + 1);
+                    int tmp = jobNumbers.jobs[i];
+                    jobNumbers.jobs[i] = jobNumbers.jobs[other];
+                    jobNumbers.jobs[other] = tmp;
+                }
+                checkCutoffs(jobNumbers, random);
+                checkCutoffs(new ResourceOrder(jobNumbers), random);
+            }
+        }
+    }
+
+    @Test
+    public void testConversions() throws IOException {
+        Instance instance = Instance.fromFile(Paths.get("instances/aaa1"));
+
+        // numéro de jobs : 1 2 2 1 1 2 (cf exercices)
+        JobNumbers enc = new JobNumbers(instance);
+        enc.jobs[enc.nextToSet++] = 0;
+        enc.jobs[enc.nextToSet++] = 1;
+        enc.jobs[enc.nextToSet++] = 1;
+        enc.jobs[enc.nextToSet++] = 0;
+        enc.jobs[enc.nextToSet++] = 0;
+        enc.jobs[enc.nextToSet++] = 1;
+        Schedule sched = enc.toSchedule();
+
+        // all conversions between the encodings preserve the schedule
+        ResourceOrder order = new ResourceOrder(enc);
+        assert order.toSchedule().makespan() == 12;
+        assert new ResourceOrder(sched).toString().equals(order.toString());
+        assert new JobNumbers(order).toSchedule().makespan() == 12;
+        assert new JobNumbers(sched).toSchedule().makespan() == 12;
+    }
+
+    @Test
+    public void testTasksByMachineView() throws IOException {
+        Instance instance = Instance.fromFile(Paths.get("instances/ft06"));
+        ResourceOrder greedy = greedyOrder(instance);
+
+        // the view follows changes made on task identifiers, including on copies
+        ResourceOrder order = greedy.copy();
+        order.swap(2, 1, 3);
+        ResourceOrder copy = order.copy();
+        Task[][] view = order.tasksByMachine();
+        Task[][] copyView = copy.tasksByMachine();
+        for(int m = 0 ; m < instance.numMachines ; m++) {
+            for(int i = 0 ; i < instance.numJobs ; i++) {
+                assert instance.taskId(view[m][i]) == order.taskAt(m, i);
+                assert instance.taskId(copyView[m][i]) == order.taskAt(m, i);
+                assert view[m][i] == order.getTask(m, i);
+            }
+        }
+
+        // the view is read-only : writing in it changes neither the order nor its next views
+        view[2][1] = view[2][3];
+        assert order.taskAt(2, 1) == greedy.taskAt(2, 3) && order.taskAt(2, 3) == greedy.taskAt(2, 1);
+        assert order.tasksByMachine()[2][1] == order.getTask(2, 1);
+        assert order.zobristHash() == copy.zobristHash();
+
+        // swapping the tasks back gives the greedy order again
+        copy.swap(2, 1, 3);
+        assert copy.evaluateMakespan() == greedy.evaluateMakespan();
+        assert copy.zobristHash() == greedy.zobristHash();
+        assert copy.tasksByMachine()[2][1] == greedy.getTask(2, 1);
+    }
+
+    /** Hash of the order computed from scratch, by placing its tasks in a new empty order. */
+    private static long hashFromScratch(ResourceOrder order) {
+        Instance instance = order.instance;
+        ResourceOrder fresh = new ResourceOrder(instance);
+        for(int m = 0 ; m < instance.numMachines ; m++) {
+            for(int i = 0 ; i < instance.numJobs ; i++) {
+                if(order.taskAt(m, i) != ResourceOrder.EMPTY)
+                    fresh.setTask(m, i, order.taskAt(m, i));
+            }
+        }
+        return fresh.zobristHash();
+    }
+
+    @Test
+    public void testZobristHash() throws IOException {
+        Instance instance = Instance.fromFile(Paths.get("instances/la21"));
+        ResourceOrder order = greedyOrder(instance);
+        ResourceOrder greedy = order.copy();
+        ResourceOrder snapshot = new ResourceOrder(instance);
+        assert order.zobristHash() == hashFromScratch(order);
+
+        Random random = new Random(0);
+        for(int k = 0 ; k < 1000 ; k++) {
+            int machine = random.nextInt(instance.numMachines);
+            int i1 = random.nextInt(instance.numJobs);
+            int i2 = random.nextInt(instance.numJobs);
+            switch(random.nextInt(3)) {
+                case 0:
+                    long expected = order.zobristHashAfterSwap(machine, i1, i2);
+                    order.swap(machine, i1, i2);
+                    assert order.zobristHash() == expected;
+                    break;
+                case 1:
+                    // overwrite a slot with the task of another slot of the machine (the order is no longer valid)
+                    order.setTask(machine, i1, order.taskAt(machine, i2));
+                    break;
+                default:
+                    snapshot.copyFrom(order);
+                    assert snapshot.zobristHash() == order.zobristHash();
+                    assert snapshot.zobristHash() == hashFromScratch(snapshot);
+            }
+            assert order.zobristHash() == hashFromScratch(order);
+        }
+        // swapping back and forth gives back the same hash
+        long hash = greedy.zobristHash();
+        greedy.swap(0, 1, 2);
+        assert greedy.zobristHash() != hash;
+        greedy.swap(0, 1, 2);
+        assert greedy.zobristHash() == hash;
+    }
+
     @Test
     public void testBasicSolver() throws IOException {
         Instance instance = Instance.fromFile(Paths.get("instances/aaa1"));
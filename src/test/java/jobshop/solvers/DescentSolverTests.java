@@ -0,0 +1,34 @@
+package jobshop.solvers;
+
+import jobshop.Instance;
+import jobshop.Result;
+import jobshop.encodings.ResourceOrder;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+public class DescentSolverTests {
+
+    @Test
+    public void testApproximateDescentReachesLocalOptimum() throws IOException {
+        for(String name : new String[] {"ft10", "la32", "la37", "orb02", "ta07"}) {
+            Instance instance = Instance.fromFile(Paths.get("instances", name));
+            DescentSolver solver = new DescentSolver(SwapEvaluator.Mode.Approximate);
+            Result result = solver.solve(instance, Long.MAX_VALUE);
+            assert result.cause == Result.ExitCause.Blocked || result.cause == Result.ExitCause.ProvedOptimal;
+
+            // whatever the estimations, no neighbor of the final solution is really better
+            ResourceOrder order = new ResourceOrder(result.schedule);
+            int makespan = order.evaluateMakespan();
+            for(DescentSolver.Block block : solver.blocksOfCriticalPath(order)) {
+                for(DescentSolver.Swap swap : solver.neighbors(block)) {
+                    swap.applyOn(order);
+                    int neighbor = order.evaluateMakespan();
+                    assert neighbor < 0 || neighbor >= makespan : name + ": " + swap + " improves to " + neighbor;
+                    swap.undoOn(order);
+                }
+            }
+        }
+    }
+}
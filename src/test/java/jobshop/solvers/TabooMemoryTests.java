@@ -0,0 +1,56 @@
+package jobshop.solvers;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class TabooMemoryTests {
+
+    /** Compares random sequences of additions and queries with the n x n matrix of expiration iterations that the
+     * taboo solver used before TabooMemory : matrix[t2][t1] = k + tenure when t1 and t2 are swapped at iteration k,
+     * and swapping t1 and t2 is taboo at iteration k if k < matrix[t1][t2]. */
+    @Test
+    public void testAgainstMatrix() {
+        for(int tenure : new int[] {0, 1, 2, 5, 13, 40}) {
+            // few tasks, so that pairs are often added again while still taboo, and many tasks
+            for(int numTasks : new int[] {4, 30, 400}) {
+                for(long seed = 0 ; seed < 5 ; seed++) {
+                    Random random = new Random(seed);
+                    TabooMemory memory = new TabooMemory(tenure);
+                    int[][] matrix = new int[numTasks][numTasks];
+                    // pairs added so far, in order
+                    int[] added1 = new int[2000];
+                    int[] added2 = new int[2000];
+                    int numAdded = 0;
+
+                    for(int k = 0 ; k < 2000 ; k++) {
+                        // some iterations do not add any swap (e.g. when all neighbors are taboo)
+                        if(random.nextInt(4) != 0) {
+                            int t1 = random.nextInt(numTasks);
+                            int t2 = random.nextInt(numTasks);
+                            memory.add(t1, t2, k);
+                            matrix[t2][t1] = k + tenure;
+                            added1[numAdded] = t1;
+                            added2[numAdded++] = t2;
+                        }
+                        for(int q = 0 ; q < 20 ; q++) {
+                            int t1 = random.nextInt(numTasks);
+                            int t2 = random.nextInt(numTasks);
+                            assert memory.isTaboo(t1, t2, k) == (k < matrix[t1][t2])
+                                    : "tenure " + tenure + ", " + numTasks + " tasks, seed " + seed + ": (" + t1 + ", "
+                                    + t2 + ") at iteration " + k;
+                        }
+                        // also query the pairs added recently, in both directions, which random queries rarely hit
+                        // with many tasks
+                        for(int a = Math.max(0, numAdded - 2 * tenure - 2) ; a < numAdded ; a++) {
+                            int t1 = added1[a];
+                            int t2 = added2[a];
+                            assert memory.isTaboo(t2, t1, k) == (k < matrix[t2][t1]);
+                            assert memory.isTaboo(t1, t2, k) == (k < matrix[t1][t2]);
+                        }
+                    }
+                }
+            }
+        }
+    }
+}